@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -32,4 +33,28 @@ application {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh, results land in build/results/jmh
+jmh {
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.add("-Xmx8g")
+}
+
+tasks.register<JavaExec>("batch") {
+    group = "application"
+    description = "Plays many seeded games headless and prints aggregate statistics, e.g. --args='--games 1000'"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("universalis.batch.BatchRunner")
+}
+
+tasks.register<JavaExec>("server") {
+    group = "application"
+    description = "Hosts games behind a local HTTP API with server-sent turn deltas, e.g. --args='--port 8080'"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("universalis.server.SimulationServer")
+}
@@ -0,0 +1,52 @@
+package universalis;
+
+import org.openjdk.jmh.annotations.*;
+import universalis.events.GameEventBus;
+import universalis.report.QuietReporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to save and load a game in progress; 2000 is the 4M-tile case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CheckpointBenchmark {
+    private static final long SEED = 42L;
+    private static final int WARM_TURNS = 10;
+
+    @Param({ "200", "2000" })
+    public int mapSize;
+
+    private Universalis game;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        game = Universalis.setupDefaultGame(mapSize, 100, SEED);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        game.runTurns(WARM_TURNS);
+        file = Files.createTempFile("universalis", ".bin");
+        game.checkpoint(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void checkpoint() throws IOException {
+        game.checkpoint(file);
+    }
+
+    @Benchmark
+    public Universalis restore() throws IOException {
+        return Universalis.restore(file);
+    }
+}
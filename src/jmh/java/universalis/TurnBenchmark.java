@@ -0,0 +1,79 @@
+package universalis;
+
+import org.openjdk.jmh.annotations.*;
+import universalis.events.GameEventBus;
+import universalis.metrics.TurnMetrics;
+import universalis.report.QuietReporter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-turn and per-phase costs of a running game. A fresh seeded game is played forward a few
+ * turns so the numbers reflect a game in progress rather than the freshly seeded map, and it is
+ * built again after MEASURED_TURNS turns, MEASURED_DEVELOPMENT_ROUNDS development rounds or once
+ * decided: one game played for a whole iteration would be over long before the end on small maps,
+ * and development handed out round after round with no turns in between soon sits at its cap
+ * everywhere. Run with the gc profiler (on by default in build.gradle.kts) to see the
+ * allocation rate next to the time. The metrics parameter compares a game recording TurnMetrics
+ * with one that records nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TurnBenchmark {
+    private static final long SEED = 42L;
+    private static final int WARM_TURNS = 10;
+    private static final int MEASURED_TURNS = 200;
+    // about five points per province, well short of the development cap
+    private static final int MEASURED_DEVELOPMENT_ROUNDS = 10;
+
+    @Param({ "40", "200", "1000", "2000" })
+    public int mapSize;
+
+    @Param({ "10", "100" })
+    public int nations;
+
+    @Param({ "false", "true" })
+    public boolean metrics;
+
+    private Universalis game;
+    private int developmentRounds;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        newGame();
+    }
+
+    @Setup(Level.Invocation)
+    public void restartPlayedOutGame() {
+        if (game.getNations().size() <= 1 || game.getCompletedTurns() >= WARM_TURNS + MEASURED_TURNS
+                || developmentRounds >= MEASURED_DEVELOPMENT_ROUNDS)
+            newGame();
+    }
+
+    private void newGame() {
+        game = Universalis.setupDefaultGame(mapSize, nations, SEED);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        if (metrics)
+            game.setMetrics(new TurnMetrics());
+        game.runTurns(WARM_TURNS);
+        developmentRounds = 0;
+    }
+
+    @Benchmark
+    public void executeTurnCycle() {
+        game.executeTurnCycle();
+    }
+
+    @Benchmark
+    public void distributeDevelopmentPoints() {
+        developmentRounds++;
+        game.distributeDevelopmentPoints();
+    }
+
+    @Benchmark
+    public String snapshotToString() {
+        return game.toString();
+    }
+}
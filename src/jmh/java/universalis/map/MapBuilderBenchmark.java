@@ -0,0 +1,49 @@
+package universalis.map;
+
+import org.openjdk.jmh.annotations.*;
+import universalis.map.factory.NationFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map construction: allocating the grid, and allocating plus seeding nations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapBuilderBenchmark {
+    private static final long SEED = 42L;
+
+    @Param({ "40", "200", "1000", "2000" })
+    public int mapSize;
+
+    @Param({ "10", "100" })
+    public int nations;
+
+    @Param({ "OBJECT", "PRIMITIVE", "SPARSE" })
+    public Map.Storage storage;
+
+    private List<Nation> roster;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        // seeding mutates the nations, so every invocation gets a fresh roster
+        NationFactory factory = new NationFactory(new Random(SEED));
+        roster = new ArrayList<>(nations);
+        for (int i = 0; i < nations; i++)
+            roster.add(factory.createNation());
+    }
+
+    @Benchmark
+    public Map create() {
+        return new Map.Builder(new Random(SEED)).storage(storage).create(mapSize).build();
+    }
+
+    @Benchmark
+    public Map createAndSeedNations() {
+        return new Map.Builder(new Random(SEED)).storage(storage).create(mapSize).seedNations(roster).build();
+    }
+}
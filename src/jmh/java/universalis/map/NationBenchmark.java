@@ -0,0 +1,65 @@
+package universalis.map;
+
+import org.openjdk.jmh.annotations.*;
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+import universalis.report.QuietReporter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one expandOrAttack decision (target lookup plus expansion or battle) for the largest
+ * nation of a game in progress. A whole turn is played before every measured move, so the other
+ * nations move and armies grow as in a real game; repeating the move on a frozen game would soon
+ * leave the nation with no empty tile in reach and an army spent in battles. The game is built
+ * again after MEASURED_TURNS turns or once decided. The turn runs in an invocation-level setup,
+ * which adds a few tens of nanoseconds of timing overhead to each result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NationBenchmark {
+    private static final long SEED = 42L;
+    private static final int WARM_TURNS = 20;
+    private static final int MEASURED_TURNS = 200;
+
+    @Param({ "40", "200", "1000", "2000" })
+    public int mapSize;
+
+    @Param({ "10", "100" })
+    public int nations;
+
+    private Universalis game;
+    private Nation largest;
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        newGame();
+        random = new Random(SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void playTurn() {
+        if (game.getNations().size() <= 1 || game.getCompletedTurns() >= WARM_TURNS + MEASURED_TURNS)
+            newGame();
+        game.runTurns(1);
+        largest = game.getNations().getFirst();
+        for (Nation nation : game.getNations())
+            if (nation.getProvinceCount() > largest.getProvinceCount()) largest = nation;
+    }
+
+    private void newGame() {
+        game = Universalis.setupDefaultGame(mapSize, nations, SEED);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        game.runTurns(WARM_TURNS);
+    }
+
+    @Benchmark
+    public int expandOrAttack() {
+        largest.expandOrAttack(game, random);
+        return largest.getProvinceCount();
+    }
+}
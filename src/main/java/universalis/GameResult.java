@@ -0,0 +1,36 @@
+package universalis;
+
+import universalis.map.Nation;
+
+/**
+ * Outcome of playToCompletion.
+ */
+public class GameResult {
+    private final int turns;
+    private final boolean stalemate;
+    private final Nation winner;
+
+    public GameResult(int turns, boolean stalemate, Nation winner) {
+        this.turns = turns;
+        this.stalemate = stalemate;
+        this.winner = winner;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * True when the game was aborted because ownership stopped changing.
+     */
+    public boolean isStalemate() {
+        return stalemate;
+    }
+
+    /**
+     * The last nation standing, or null when the game ended with zero or several nations left.
+     */
+    public Nation getWinner() {
+        return winner;
+    }
+}
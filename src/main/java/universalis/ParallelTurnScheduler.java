@@ -0,0 +1,131 @@
+package universalis;
+
+import universalis.map.LongIndexSet;
+import universalis.map.Map;
+import universalis.map.Nation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs nation turns concurrently when their footprints on the map do not overlap.
+ *
+ * A nation's turn can only change the cells in its frontier, and those changes reach at most
+ * one tile further (frontier updates of the neighbors' owners). Its footprint is therefore the
+ * frontier plus one ring of cells, together with the nations owning any of those cells.
+ * Nations are taken in turn order and grouped into batches while their footprints stay disjoint;
+ * the first conflict closes the batch. Nations within a batch cannot observe each other, so
+ * running them concurrently gives exactly the sequential result, provided every nation draws
+ * from its own random stream.
+ */
+class ParallelTurnScheduler {
+    private final Universalis game;
+    private final ForkJoinPool pool;
+
+    // scratch state reused between batches; only touched by the scheduling thread
+    private final LongIndexSet claimedCells = new LongIndexSet();
+    private final Set<Nation> claimedNations = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final LongIndexSet candidateCells = new LongIndexSet();
+    private final Set<Nation> candidateNations = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Nation> batch = new ArrayList<>();
+    // the batch holds a nation whose strategy looks beyond its frontier, so nobody may join it
+    private boolean exclusiveBatch;
+
+    ParallelTurnScheduler(Universalis game, ForkJoinPool pool) {
+        this.game = game;
+        this.pool = pool;
+    }
+
+    void takeTurns(List<Nation> order) {
+        int next = 0;
+        while (next < order.size()) {
+            claimedCells.clear();
+            claimedNations.clear();
+            batch.clear();
+            exclusiveBatch = false;
+            while (next < order.size() && claim(order.get(next))) {
+                batch.add(order.get(next));
+                next++;
+            }
+            runBatch();
+        }
+    }
+
+    private void runBatch() {
+        forEachConcurrently(batch, game::takeNationTurn);
+    }
+
+    /**
+     * Run an action for all the nations at once; it must only touch the nation's own provinces
+     * and random stream, like the development phase.
+     */
+    void forEachConcurrently(List<Nation> nations, Consumer<Nation> action) {
+        forEachIndexConcurrently(nations.size(), index -> action.accept(nations.get(index)));
+    }
+
+    /**
+     * Run an action for every index below count at once and wait for all of them.
+     */
+    void forEachIndexConcurrently(int count, IntConsumer action) {
+        if (count == 1) {
+            action.accept(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            int task = index;
+            tasks.add(ForkJoinTask.adapt(() -> action.accept(task)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * Add the nation's footprint to the current batch if it is disjoint from everything claimed so far.
+     * The first nation of a batch always succeeds; one whose strategy reads beyond its frontier
+     * always runs alone.
+     */
+    private boolean claim(Nation nation) {
+        boolean exclusive = nation.getStrategy() != null && nation.getStrategy().readsBeyondFrontier();
+        if (!batch.isEmpty() && (exclusive || exclusiveBatch)) return false;
+        exclusiveBatch = exclusive;
+        Map map = game.getMap();
+        candidateCells.clear();
+        candidateNations.clear();
+        candidateNations.add(nation);
+        addFootprint(map, nation.getFrontier().getEmptyCells());
+        addFootprint(map, nation.getFrontier().getEnemyCells());
+
+        if (!batch.isEmpty()) {
+            for (Nation touched : candidateNations)
+                if (claimedNations.contains(touched)) return false;
+            for (int i = 0; i < candidateCells.size(); i++)
+                if (claimedCells.contains(candidateCells.get(i))) return false;
+        }
+        claimedNations.addAll(candidateNations);
+        for (int i = 0; i < candidateCells.size(); i++)
+            claimedCells.add(candidateCells.get(i));
+        return true;
+    }
+
+    private void addFootprint(Map map, LongIndexSet frontierCells) {
+        for (int i = 0; i < frontierCells.size(); i++) {
+            long cell = frontierCells.get(i);
+            addCell(map, cell);
+            for (int n = 0, degree = map.degree(cell); n < degree; n++)
+                addCell(map, map.neighbor(cell, n));
+        }
+    }
+
+    private void addCell(Map map, long cell) {
+        if (!candidateCells.add(cell)) return;
+        Nation owner = map.getOwner(cell);
+        if (owner != null) candidateNations.add(owner);
+    }
+}
@@ -0,0 +1,69 @@
+package universalis;
+
+import universalis.map.Map;
+import universalis.map.Nation;
+import universalis.strategy.Order;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Simultaneous turns: every nation declares its move at once, then all moves are settled together,
+ * so no nation sees what another does in the same turn and the list order gives no advantage.
+ *
+ * Declaring changes nothing but the nations' strategies, so the map and all armies stay as they
+ * were at the start of the turn and nations declare concurrently. Resolution then walks the tile
+ * moves in cell order: on each tile the strongest declared army acts and the others are bounced,
+ * and when the strongest armies tie nobody acts there. The winning move is carried out with the
+ * normal battle rules against the armies as they stand by then. Last, DEVELOP orders run and all
+ * armies grow, concurrently again since each nation only touches its own provinces.
+ */
+class SimultaneousTurns {
+    // tile moves grouped by tile, strongest first
+    private static final Comparator<Order> RESOLUTION_ORDER = Comparator.comparingLong(Order::getCell)
+            .thenComparing(Comparator.comparingInt(Order::getArmy).reversed());
+
+    private final Universalis game;
+    private final ParallelTurnScheduler scheduler;
+
+    SimultaneousTurns(Universalis game, ParallelTurnScheduler scheduler) {
+        this.game = game;
+        this.scheduler = scheduler;
+    }
+
+    void takeTurns(List<Nation> nations) {
+        Order[] orders = new Order[nations.size()];
+        scheduler.forEachIndexConcurrently(orders.length, index -> orders[index] = game.declareNationTurn(nations.get(index)));
+
+        resolveTileMoves(orders);
+
+        scheduler.forEachIndexConcurrently(orders.length, index -> {
+            Nation nation = nations.get(index);
+            Order order = orders[index];
+            if (order != null && !order.targetsTile())
+                nation.getStrategy().develop(nation, game);
+            nation.growArmy();
+        });
+    }
+
+    private void resolveTileMoves(Order[] orders) {
+        List<Order> moves = new ArrayList<>(orders.length);
+        for (Order order : orders)
+            if (order != null && order.targetsTile()) moves.add(order);
+        moves.sort(RESOLUTION_ORDER);
+
+        Map map = game.getMap();
+        int first = 0;
+        while (first < moves.size()) {
+            Order strongest = moves.get(first);
+            int next = first + 1;
+            while (next < moves.size() && moves.get(next).getCell() == strongest.getCell())
+                next++;
+            boolean standoff = next > first + 1 && moves.get(first + 1).getArmy() == strongest.getArmy();
+            if (!standoff)
+                strongest.getNation().carryOut(strongest, map);
+            first = next;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package universalis;
+
+/**
+ * The map state hashes of the last few turns. Checking whether a state came up again is a scan of
+ * a fixed-size array, so it costs the same on a 10x10 map and on a 4000x4000 one.
+ */
+final class StateHistory {
+    private final long[] recent;
+    private int next;
+    private int size;
+
+    StateHistory(int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be > 0");
+        this.recent = new long[window];
+    }
+
+    /**
+     * Remember the hash, dropping the oldest one once the window is full.
+     *
+     * @return true if the same hash was already among the remembered ones
+     */
+    boolean add(long hash) {
+        boolean seen = false;
+        for (int i = 0; i < size && !seen; i++)
+            seen = recent[i] == hash;
+        recent[next] = hash;
+        next = (next + 1) % recent.length;
+        size = Math.min(size + 1, recent.length);
+        return seen;
+    }
+}
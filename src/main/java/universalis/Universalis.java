@@ -2,52 +2,290 @@ package universalis;
 
 import universalis.events.GameEvent;
 import universalis.events.GameEventBus;
+import universalis.io.BinaryReader;
+import universalis.io.BinaryWriter;
 import universalis.map.Map;
+import universalis.map.MapCheckpoint;
 import universalis.map.Nation;
 import universalis.map.factory.NationFactory;
 import universalis.map.Province;
+import universalis.metrics.TurnMetrics;
+import universalis.random.RandomStreams;
+import universalis.report.GameReporter;
+import universalis.report.SnapshotReporter;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.SnapshotPublisher;
 import universalis.strategy.DefensiveStrategy;
+import universalis.strategy.InfluenceMap;
+import universalis.strategy.InfluenceStrategy;
 import universalis.strategy.NoOpStrategy;
 import universalis.strategy.OffensiveStrategy;
+import universalis.strategy.Order;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 public class Universalis {
+    /**
+     * SEQUENTIAL runs nations one after another; PARALLEL runs nations whose footprints on the map
+     * do not touch concurrently and produces the same result for the same seed.
+     */
+    public enum TurnMode { SEQUENTIAL, PARALLEL, SIMULTANEOUS }
+
+    // offsets of Topology.SQUARE; the map itself walks neighbors through Map.degree/neighbor
     public static final int[][] DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
     private static final int MAX_TURNS = 250;
-    private static final int MAX_NAME_LENGTH = 10;
     private static final int MINIMUM_NATION_COUNT = 1;
     private static final int MAX_IDLE_TURNS = 1000;
+    // turns of map states remembered for spotting provinces changing hands back and forth
+    private static final int STATE_HISTORY_SIZE = 64;
+    // consecutive turns ending on a remembered state that confirm the game is going round in circles
+    private static final int REPEATED_STATE_TURNS = 32;
 
     private static final int DEVELOPMENT_PROVINCE_FACTOR = 2;
     private static final int INCREASE_DEVELOPMENT_VALUE = 1;
 
+    private static final int TURN_TIME_BUFFER = 64;
+
+    private static final int CHECKPOINT_MAGIC = 0x4D554E49; // "MUNI"
+    private static final int CHECKPOINT_VERSION = 4;
+
     private final Map map;
     private final List<Nation> nations = new ArrayList<>();
-    private final Random rng;
+    private final RandomStreams streams;
     private int turnDelay = 0;
+    // debug mode: recount nation aggregates after every turn, also enabled by -Duniversalis.debug=true
+    private boolean consistencyChecks = Boolean.getBoolean("universalis.debug");
+    // null means the default: a full SnapshotReporter on System.out, created when the game starts
+    private GameReporter reporter;
+    private GameEventBus eventBus = GameEventBus.getInstance();
+    private TurnMode turnMode = TurnMode.SEQUENTIAL;
+    private ParallelTurnScheduler parallelTurns;
+    private SimultaneousTurns simultaneousTurns;
+    private SnapshotPublisher snapshots;
+    // created when a strategy first asks for it, rebuilt once per turn
+    private InfluenceMap influence;
+    private int completedTurns;
+    // null records nothing; -Duniversalis.metrics=true gives every game TurnMetrics.shared()
+    private TurnMetrics metrics;
+    // time of each TurnMetrics.Phase in the current turn, reused between turns
+    private final long[] phaseNanos = new long[TurnMetrics.Phase.values().length];
+    // whole-turn times and move counts (expansions, battles, captures, ties) not yet passed to
+    // metrics; they are handed over on sampled turns, when the buffer fills and when runTurns or
+    // playToCompletion returns, so other turns touch nothing shared
+    private final long[] turnNanos = new long[TURN_TIME_BUFFER];
+    private int bufferedTurns;
+    private final long[] moveCounts = new long[4];
+    // created once, as a capturing lambda per turn would allocate
+    private final Predicate<Nation> eliminated = nation -> {
+        if (nation.getProvinceCount() > 0)
+            return false;
+        nation.drainMoveCounts(moveCounts);
+        return true;
+    };
+    // whether this turn's phases and nation moves are timed; set before anyone moves
+    private boolean sampledTurn;
 
     public Universalis(Map map, List<Nation> nations) {
         this(map, nations, new Random());
     }
 
+    /**
+     * The Random only supplies the game seed; all draws come from streams derived from it.
+     */
     public Universalis(Map map, List<Nation> nations, Random rng) {
+        this(map, nations, new RandomStreams((rng == null ? new Random() : rng).nextLong()));
+    }
+
+    public Universalis(Map map, List<Nation> nations, RandomStreams streams) {
+        this(map, nations, streams, 0);
+        // every nation gets its own stream, keyed by its starting position in the list
+        for (int i = 0; i < this.nations.size(); i++)
+            this.nations.get(i).setRandom(streams.nation(i));
+    }
+
+    // restore path: nations keep the streams they were saved with
+    private Universalis(Map map, List<Nation> nations, RandomStreams streams, int completedTurns) {
         if (map == null)
             throw new IllegalArgumentException("map required");
+        if (streams == null)
+            throw new IllegalArgumentException("streams required");
         this.map = map;
         if (nations != null)
             this.nations.addAll(nations);
-        this.rng = rng == null ? new Random() : rng;
+        this.streams = streams;
+        this.completedTurns = completedTurns;
+        if (Boolean.getBoolean("universalis.metrics"))
+            useMetrics(TurnMetrics.shared());
+    }
+
+    /**
+     * Save the full game state (map, nations, random streams, turn count) to a binary file. The file
+     * is written next to the target and moved into place, so a crash never leaves a half-written
+     * checkpoint behind. Runtime settings such as turn mode, delay and event bus are not saved.
+     *
+     * @throws IllegalStateException if a nation or strategy uses randomness that cannot be saved
+     */
+    public void checkpoint(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BinaryWriter out = new BinaryWriter(channel);
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeInt(completedTurns);
+            out.writeLong(streams.getSeed());
+            MapCheckpoint.write(out, map, nations);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load a game saved by checkpoint. It continues exactly as the saved game would have.
+     */
+    public static Universalis restore(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BinaryReader in = new BinaryReader(channel);
+            if (in.readInt() != CHECKPOINT_MAGIC)
+                throw new IOException("not a checkpoint: " + path);
+            int version = in.readInt();
+            if (version != CHECKPOINT_VERSION)
+                throw new IOException("unsupported checkpoint version " + version);
+            int completedTurns = in.readInt();
+            RandomStreams streams = new RandomStreams(in.readLong());
+            List<Nation> nations = new ArrayList<>();
+            Map map = MapCheckpoint.read(in, nations);
+            if (!in.atEnd())
+                throw new IOException("trailing data after checkpoint");
+            return new Universalis(map, nations, streams, completedTurns);
+        }
+    }
+
+    public RandomStreams getRandomStreams() {
+        return streams;
     }
 
     public void setTurnDelay(int delayMs) {
         this.turnDelay = delayMs;
     }
 
+    public void setTurnMode(TurnMode turnMode) {
+        setTurnMode(turnMode, ForkJoinPool.commonPool());
+    }
+
+    public void setTurnMode(TurnMode turnMode, ForkJoinPool pool) {
+        if (turnMode == null)
+            throw new IllegalArgumentException("turnMode required");
+        this.turnMode = turnMode;
+        // simultaneous turns use the scheduler only for running nations concurrently
+        this.parallelTurns = turnMode == TurnMode.SEQUENTIAL ? null : new ParallelTurnScheduler(this, pool);
+        this.simultaneousTurns = turnMode == TurnMode.SIMULTANEOUS ? new SimultaneousTurns(this, parallelTurns) : null;
+    }
+
+    /**
+     * Where playToCompletion reports progress; pass a QuietReporter to print nothing.
+     */
+    public void setReporter(GameReporter reporter) {
+        if (reporter == null)
+            throw new IllegalArgumentException("reporter required");
+        this.reporter = reporter;
+    }
+
+    /**
+     * Route this game's events to its own bus instead of the shared one.
+     */
+    public void setEventBus(GameEventBus eventBus) {
+        if (eventBus == null)
+            throw new IllegalArgumentException("eventBus required");
+        this.eventBus = eventBus;
+    }
+
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Record phase times, nation moves and battles into the given metrics, or stop recording with
+     * null. Without metrics a turn reads no clocks at all.
+     */
+    public void setMetrics(TurnMetrics metrics) {
+        useMetrics(metrics);
+    }
+
+    private void useMetrics(TurnMetrics metrics) {
+        if (this.metrics != null)
+            flushMetrics();
+        this.metrics = metrics;
+        for (Nation nation : nations)
+            nation.setCountingMoves(metrics != null);
+    }
+
+    public TurnMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setConsistencyChecks(boolean enabled) {
+        this.consistencyChecks = enabled;
+    }
+
+    /**
+     * Publish a read-only GameSnapshot at the end of every turn, for renderers and other threads
+     * that must not touch the live map. Turns on change tracking for the map.
+     */
+    public void setSnapshotPublishing(boolean enabled) {
+        if (!enabled) {
+            snapshots = null;
+        } else if (snapshots == null) {
+            if (!map.isChangeTracking())
+                map.setChangeTracking(true);
+            snapshots = new SnapshotPublisher(map, nations, completedTurns);
+        }
+    }
+
+    public boolean isSnapshotPublishing() {
+        return snapshots != null;
+    }
+
+    /**
+     * The state at the end of the last completed turn, or null when snapshot publishing is off.
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshots == null ? null : snapshots.getLatest();
+    }
+
+    /**
+     * Number of turn cycles this game has executed.
+     */
+    public int getCompletedTurns() {
+        return completedTurns;
+    }
+
     public Map getMap() {
         return map;
     }
 
+    /**
+     * Influence fields for the current turn, built from the map as it was when the turn started.
+     */
+    public InfluenceMap getInfluenceMap() {
+        if (influence == null)
+            influence = new InfluenceMap();
+        if (influence.getTurn() != completedTurns)
+            influence.update(map, nations, completedTurns);
+        return influence;
+    }
+
     public List<Nation> getNations() {
         return Collections.unmodifiableList(nations);
     }
@@ -58,64 +296,176 @@ public class Universalis {
             executeTurnCycle();
             // no extra logic in this method beyond a standard turn cycle
         }
+        if (metrics != null)
+            flushMetrics();
     }
 
     // play until only one nation remains or stalemate detected
-    public void playToCompletion() {
+    public GameResult playToCompletion() {
         int turn = 0;
         int idleTurns = 0;
-        int lastOwned = totalOwnedProvinces();
+        int repeatedTurns = 0;
+        long lastOwned = map.getOwnedCellCount();
+        StateHistory history = new StateHistory(STATE_HISTORY_SIZE);
+        history.add(map.getStateHash());
+        boolean stalemate = false;
+        GameReporter out = reporter != null ? reporter : SnapshotReporter.toStandardOut();
+        out.gameStarting(this);
 
         while (nations.size() > MINIMUM_NATION_COUNT && turn < MAX_IDLE_TURNS) {
-            System.out.println(this);
+            out.turnStarting(this);
 
             turn++;
             executeTurnCycle();
 
-            int currentOwnedProvinces = totalOwnedProvinces();
-            if (currentOwnedProvinces == lastOwned)
+            // a turn makes no progress if the number of owned provinces stayed the same, or if the
+            // map went back to an ownership seen in the last few turns; a streak of the latter,
+            // frozen borders or a cycle of trades, ends the game without waiting for MAX_TURNS
+            long currentOwnedProvinces = map.getOwnedCellCount();
+            boolean repeated = history.add(map.getStateHash());
+            repeatedTurns = repeated ? repeatedTurns + 1 : 0;
+            if (currentOwnedProvinces == lastOwned || repeated)
                 idleTurns++;
             else
                 idleTurns = 0;
             lastOwned = currentOwnedProvinces;
-            if (MAX_TURNS > 0 && idleTurns >= MAX_TURNS) {
-                System.out.println("Stalemate detected after " + idleTurns + " idle turns. Aborting.");
+            if (repeatedTurns >= REPEATED_STATE_TURNS || MAX_TURNS > 0 && idleTurns >= MAX_TURNS) {
+                out.stalemateDetected(this, idleTurns);
+                stalemate = true;
                 break;
             }
         }
 
-        System.out.println("Took " + turn + " turns.");
-        if (!nations.isEmpty()) {
-            Nation winner = nations.getFirst();
-            System.out.println("Finished. Winner: " + winner.getName());
-            System.out.println("=== Game Metrics ===");
-            System.out.println("  - Total Provinces: " + winner.getProvinceCount());
-            System.out.println("  - Total Development: " + winner.getTotalDevelopment());
-            System.out.println("  - Final Army Size: " + winner.getArmy());
-            System.out.println("====================");
-        } else {
-            System.out.println("Finished. No winner.");
-        }
-        GameEventBus.getInstance().publish(new GameEvent(GameEvent.Type.GAME_FINISHED, this));
+        if (metrics != null)
+            flushMetrics();
+        GameResult result = new GameResult(turn, stalemate, nations.size() == 1 ? nations.getFirst() : null);
+        out.gameFinished(this, result);
+        eventBus.publish(new GameEvent(GameEvent.Type.GAME_FINISHED, this, null, getSnapshot()));
+        return result;
     }
 
-    private void executeTurnCycle() {
-        // iterate over a snapshot of the list so modifications during turns do not affect iteration
-        for (Nation nation : new ArrayList<>(nations)) {
-            nation.takeTurn(this);
-        }
+    // package-private for the jmh benchmarks
+    void executeTurnCycle() {
+        TurnMetrics metrics = this.metrics;
+        long turnStart = metrics == null ? 0 : System.nanoTime();
+        // phases and nation moves are timed on sampled turns, the others read the clock twice
+        boolean sampled = metrics != null && metrics.isSampledTurn(completedTurns + 1);
+        sampledTurn = sampled;
 
-        // remove nations that lost all provinces
-        nations.removeIf(nation -> nation.getProvinceCount() == 0);
+        // built before anyone moves, so every nation reads the same fields in any turn mode
+        if (usesInfluenceMap())
+            getInfluenceMap();
+
+        // the list only changes after all turns are taken, so it is walked in place, by index so
+        // that a steady-state turn allocates nothing
+        if (turnMode == TurnMode.PARALLEL) {
+            parallelTurns.takeTurns(nations);
+        } else if (turnMode == TurnMode.SIMULTANEOUS) {
+            simultaneousTurns.takeTurns(nations);
+        } else {
+            for (int i = 0; i < nations.size(); i++) {
+                takeNationTurn(nations.get(i));
+            }
+        }
+        long phaseStart = sampled ? lap(TurnMetrics.Phase.STRATEGY, turnStart) : 0;
+        // remove nations that lost all provinces, keeping the moves they made for the metrics
+        nations.removeIf(eliminated);
+        if (sampled)
+            phaseStart = lap(TurnMetrics.Phase.ELIMINATION, phaseStart);
 
         // apply development distribution
         distributeDevelopmentPoints();
+        if (sampled)
+            phaseStart = lap(TurnMetrics.Phase.DEVELOPMENT, phaseStart);
+
+        // nothing runs concurrently here, so sparse maps can free chunks that went back to their starting state
+        map.trimStorage();
+
+        if (consistencyChecks)
+            verifyAggregates();
 
-        // publish a turn-completed event for observers/UI
-        GameEventBus.getInstance().publish(new GameEvent(GameEvent.Type.TURN_COMPLETED, this));
+        completedTurns++;
+
+        // publish a turn-completed event for observers/UI, with a snapshot readers can use off this thread;
+        // skipped when nobody is listening
+        if (snapshots != null || eventBus.hasSubscribers()) {
+            if (sampled)
+                phaseStart = System.nanoTime();
+            long[] changedCells = map.drainChangedCells();
+            GameSnapshot snapshot = snapshots == null ? null : snapshots.publish(completedTurns, nations, changedCells);
+            eventBus.publish(new GameEvent(GameEvent.Type.TURN_COMPLETED, this, changedCells, snapshot));
+            if (sampled)
+                lap(TurnMetrics.Phase.PUBLISH, phaseStart);
+        } else {
+            phaseNanos[TurnMetrics.Phase.PUBLISH.ordinal()] = 0;
+        }
 
         // apply optional delay between turns if configured
-        sleepIfNeeded();
+        if (sampled && turnDelay > 0) {
+            phaseStart = System.nanoTime();
+            sleepIfNeeded();
+            lap(TurnMetrics.Phase.SLEEP, phaseStart);
+        } else {
+            sleepIfNeeded();
+            phaseNanos[TurnMetrics.Phase.SLEEP.ordinal()] = 0;
+        }
+
+        if (metrics != null) {
+            lap(TurnMetrics.Phase.TURN, turnStart);
+            turnNanos[bufferedTurns++] = phaseNanos[TurnMetrics.Phase.TURN.ordinal()];
+            if (sampled || bufferedTurns == turnNanos.length)
+                flushMetrics();
+            if (sampled)
+                metrics.turnSampled(completedTurns, nations.size(), phaseNanos);
+        }
+    }
+
+    // hand the buffered turn times and every nation's move counts to the metrics
+    private void flushMetrics() {
+        for (int i = 0; i < nations.size(); i++)
+            nations.get(i).drainMoveCounts(moveCounts);
+        metrics.turnsCompleted(turnNanos, bufferedTurns);
+        metrics.movesMade(moveCounts[0], moveCounts[1], moveCounts[2], moveCounts[3]);
+        bufferedTurns = 0;
+        Arrays.fill(moveCounts, 0);
+    }
+
+    // store the time since start as the phase's time and return the current time
+    private long lap(TurnMetrics.Phase phase, long start) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] = now - start;
+        return now;
+    }
+
+    /**
+     * One nation's move in sequential and parallel turns, timed on the turns metrics sample.
+     */
+    void takeNationTurn(Nation nation) {
+        if (!sampledTurn) {
+            nation.takeTurn(this);
+            return;
+        }
+        long start = System.nanoTime();
+        nation.takeTurn(this);
+        metrics.nationTurn(completedTurns + 1, nation, System.nanoTime() - start);
+    }
+
+    /**
+     * The declare half of a simultaneous turn, timed like takeNationTurn.
+     */
+    Order declareNationTurn(Nation nation) {
+        if (!sampledTurn)
+            return nation.declareTurn(this);
+        long start = System.nanoTime();
+        Order order = nation.declareTurn(this);
+        metrics.nationTurn(completedTurns + 1, nation, System.nanoTime() - start);
+        return order;
+    }
+
+    private boolean usesInfluenceMap() {
+        for (int i = 0; i < nations.size(); i++)
+            if (nations.get(i).getStrategy() instanceof InfluenceStrategy) return true;
+        return false;
     }
 
     private void sleepIfNeeded() {
@@ -128,62 +478,51 @@ public class Universalis {
         }
     }
 
-    private int totalOwnedProvinces() {
-        int sum = 0;
-        for (Nation nation : new ArrayList<>(nations))
-            sum += nation.getProvinceCount();
-        return sum;
+    /**
+     * Debug check: every nation's incremental aggregates must match a full recount.
+     */
+    public void verifyAggregates() {
+        for (Nation nation : nations)
+            nation.verifyAggregates(map);
+        map.verifyStateHash();
     }
 
     /**
-     * nations get half of their total provinces in development to distribute randomly
+     * nations get half of their total provinces in development to distribute randomly; nations
+     * draw from their own streams, so with parallel or simultaneous turns they do this concurrently
      */
-    private void distributeDevelopmentPoints() {
-        for (Nation nation : new ArrayList<>(nations)) {
-            int points = Math.max(0, nation.getProvinceCount() / DEVELOPMENT_PROVINCE_FACTOR);
-            for (int i = 0; i < points; i++) {
-                List<Province> list = nation.getProvinces();
-                if (list.isEmpty())
-                    break;
-                Province province = list.get(rng.nextInt(list.size()));
-                province.changeDevelopment(INCREASE_DEVELOPMENT_VALUE);
-            }
+    void distributeDevelopmentPoints() {
+        if (parallelTurns != null) {
+            parallelTurns.forEachConcurrently(nations, Universalis::developNation);
+        } else {
+            for (int i = 0; i < nations.size(); i++)
+                developNation(nations.get(i));
         }
     }
 
+    private static void developNation(Nation nation) {
+        int points = Math.max(0, nation.getProvinceCount() / DEVELOPMENT_PROVINCE_FACTOR);
+        nation.distributeDevelopment(points, INCREASE_DEVELOPMENT_VALUE);
+    }
+
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        int width = map.getWidth();
-        int height = map.getHeight();
-
-        sb.append("\n=== Universalis Map snapshot ===\n");
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                Province province = map.getProvince(col, row);
-                String ownerName = province.getOwner() == null ? "." : province.getOwner().getName();
-                String ownerShort = ownerName.length() > MAX_NAME_LENGTH ? ownerName.substring(0, MAX_NAME_LENGTH)
-                        : ownerName;
-                sb.append(String.format("%2d:%-10s ", province.getDevelopment(), ownerShort));
-            }
-            sb.append("\n");
-        }
-
-        sb.append("\n=== Nations ===\n");
-        for (Nation nation : nations) {
-            int count = nation.getProvinceCount();
-            int totalDev = nation.getTotalDevelopment();
-            sb.append(String.format("%s - provinces=%d, totalDev=%d, army=%d\n", nation.getName(), count, totalDev,
-                    nation.getArmy()));
-        }
-        sb.append("===============================");
-        return sb.toString();
+        return SnapshotReporter.snapshotText(this);
     }
 
     /**
      * Helper to create a ready-to-run Universalis instance.
      */
     public static Universalis setupDefaultGame(int size, int numNations) {
+        return setupDefaultGame(size, numNations, new Random().nextLong());
+    }
+
+    /**
+     * Same as setupDefaultGame(size, numNations) but fully determined by the seed. The game has its own
+     * name pool and random streams, so many can run concurrently; give each one its own GameEventBus
+     * via setEventBus if they should not share subscribers.
+     */
+    public static Universalis setupDefaultGame(int size, int numNations, long seed) {
         if (size <= 0)
             throw new IllegalArgumentException("invalid size");
         if (numNations <= 0)
@@ -192,17 +531,19 @@ public class Universalis {
             throw new IllegalArgumentException("too many nations for map size");
 
         List<Nation> nations = new ArrayList<>(numNations);
-        Random rng = new Random();
+        RandomStreams streams = new RandomStreams(seed);
+        NationFactory nationFactory = new NationFactory(streams.phase(RandomStreams.Phase.NAMES));
+        Random setup = streams.phase(RandomStreams.Phase.SETUP);
 
         for (int i = 0; i < numNations; i++) {
-            Nation nation = NationFactory.createRandomNation();
-            int pick = rng.nextInt(3);
+            Nation nation = nationFactory.createNation();
+            int pick = setup.nextInt(3);
             switch (pick) {
                 case 0:
                     nation.setStrategy(new NoOpStrategy());
                     break;
                 case 1:
-                    nation.setStrategy(new OffensiveStrategy(rng));
+                    nation.setStrategy(new OffensiveStrategy());
                     break;
                 default:
                     nation.setStrategy(new DefensiveStrategy());
@@ -211,8 +552,8 @@ public class Universalis {
             nations.add(nation);
         }
 
-        Map.Builder builder = new Map.Builder(rng);
+        Map.Builder builder = new Map.Builder(streams.phase(RandomStreams.Phase.MAP));
         Map map = builder.create(size).seedNations(nations).build();
-        return new Universalis(map, nations, rng);
+        return new Universalis(map, nations, streams);
     }
-}
\ No newline at end of file
+}
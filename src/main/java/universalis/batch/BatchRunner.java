@@ -0,0 +1,137 @@
+package universalis.batch;
+
+import universalis.GameResult;
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+import universalis.map.Nation;
+import universalis.random.SplitMixRandom;
+import universalis.report.QuietReporter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many independent seeded games headless, one per worker thread at a time, and folds every
+ * result into a BatchStatistics. Game i always uses the same seed for a given batch seed, so the
+ * statistics do not depend on the number of threads.
+ *
+ * Usage: BatchRunner [--games N] [--size S] [--nations K] [--seed X] [--threads T]
+ */
+public class BatchRunner {
+    private int games = 1000;
+    private int mapSize = 10;
+    private int nationsPerGame = 5;
+    private long seed = 0L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public BatchRunner games(int games) {
+        if (games <= 0) throw new IllegalArgumentException("games must be > 0");
+        this.games = games;
+        return this;
+    }
+
+    public BatchRunner mapSize(int mapSize) {
+        if (mapSize <= 0) throw new IllegalArgumentException("invalid size");
+        this.mapSize = mapSize;
+        return this;
+    }
+
+    public BatchRunner nationsPerGame(int nationsPerGame) {
+        if (nationsPerGame <= 0) throw new IllegalArgumentException("nationsPerGame must be > 0");
+        this.nationsPerGame = nationsPerGame;
+        return this;
+    }
+
+    public BatchRunner seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public BatchRunner threads(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be > 0");
+        this.threads = threads;
+        return this;
+    }
+
+    public BatchStatistics run() {
+        BatchStatistics statistics = new BatchStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> pending = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                long gameSeed = gameSeed(i);
+                pending.add(executor.submit(() -> playOne(gameSeed, statistics)));
+            }
+            for (Future<?> future : pending)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("game failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return statistics;
+    }
+
+    private void playOne(long gameSeed, BatchStatistics statistics) {
+        Universalis game = Universalis.setupDefaultGame(mapSize, nationsPerGame, gameSeed);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+
+        // takeTurn swaps strategies as the game goes, so remember what each nation started with
+        java.util.Map<Nation, String> startingStrategies = new IdentityHashMap<>();
+        for (Nation nation : game.getNations())
+            startingStrategies.put(nation, String.valueOf(nation.getStrategy()));
+
+        GameResult result = game.playToCompletion();
+        Nation winner = result.getWinner();
+        statistics.record(winner == null ? null : startingStrategies.get(winner), result.getTurns(),
+                result.isStalemate(), winner == null ? 0 : winner.getTotalDevelopment());
+    }
+
+    // spread consecutive game indexes over the whole seed space
+    private long gameSeed(int index) {
+        return SplitMixRandom.mix64(seed + (index + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + flag);
+            String value = args[++i];
+            switch (flag) {
+                case "--games":
+                    runner.games(Integer.parseInt(value));
+                    break;
+                case "--size":
+                    runner.mapSize(Integer.parseInt(value));
+                    break;
+                case "--nations":
+                    runner.nationsPerGame(Integer.parseInt(value));
+                    break;
+                case "--seed":
+                    runner.seed(Long.parseLong(value));
+                    break;
+                case "--threads":
+                    runner.threads(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + flag);
+            }
+        }
+
+        long start = System.nanoTime();
+        BatchStatistics statistics = runner.run();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(statistics);
+        System.out.println("Took " + elapsedMs + " ms on " + runner.threads + " threads.");
+    }
+}
@@ -0,0 +1,69 @@
+package universalis.batch;
+
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * Running aggregate over finished games. Results are folded in as they arrive, so memory does not
+ * grow with the number of games.
+ */
+public class BatchStatistics {
+    private static final String NO_WINNER = "none";
+
+    private final java.util.Map<String, Long> winsByStrategy = new TreeMap<>();
+    private long games;
+    private long stalemates;
+    private long totalTurns;
+    private int minTurns = Integer.MAX_VALUE;
+    private int maxTurns;
+    private long totalWinnerDevelopment;
+
+    /**
+     * @param winnerStrategy strategy the winner started with, or null when the game had no single winner
+     */
+    public synchronized void record(String winnerStrategy, int turns, boolean stalemate, int winnerDevelopment) {
+        games++;
+        if (stalemate)
+            stalemates++;
+        winsByStrategy.merge(winnerStrategy == null ? NO_WINNER : winnerStrategy, 1L, Long::sum);
+        totalTurns += turns;
+        minTurns = Math.min(minTurns, turns);
+        maxTurns = Math.max(maxTurns, turns);
+        totalWinnerDevelopment += winnerDevelopment;
+    }
+
+    public synchronized long getGames() { return games; }
+    public synchronized long getStalemates() { return stalemates; }
+    public synchronized int getMinTurns() { return games == 0 ? 0 : minTurns; }
+    public synchronized int getMaxTurns() { return maxTurns; }
+    public synchronized double getMeanTurns() { return games == 0 ? 0 : (double) totalTurns / games; }
+
+    /**
+     * Mean final total development of the winner, counting games without a winner as zero.
+     */
+    public synchronized double getMeanWinnerDevelopment() { return games == 0 ? 0 : (double) totalWinnerDevelopment / games; }
+
+    /**
+     * Wins keyed by the winner's starting strategy; games without a single winner are counted under "none".
+     */
+    public synchronized java.util.Map<String, Long> getWinsByStrategy() {
+        return Collections.unmodifiableMap(new TreeMap<>(winsByStrategy));
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Batch summary ===\n");
+        sb.append("Games: ").append(games).append('\n');
+        sb.append("Stalemates: ").append(stalemates).append('\n');
+        sb.append(String.format("Turns: min=%d, mean=%.1f, max=%d\n", getMinTurns(), getMeanTurns(), maxTurns));
+        sb.append(String.format("Winner development: mean=%.1f\n", getMeanWinnerDevelopment()));
+        sb.append("Wins by starting strategy:\n");
+        for (java.util.Map.Entry<String, Long> entry : winsByStrategy.entrySet()) {
+            double share = 100.0 * entry.getValue() / games;
+            sb.append(String.format("  - %s: %d (%.1f%%)\n", entry.getKey(), entry.getValue(), share));
+        }
+        sb.append("=====================");
+        return sb.toString();
+    }
+}
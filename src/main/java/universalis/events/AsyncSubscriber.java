@@ -0,0 +1,149 @@
+package universalis.events;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer plus a daemon thread that feeds the subscriber. Publishing only takes a
+ * short lock to enqueue; the subscriber runs on its own thread.
+ */
+class AsyncSubscriber implements Subscription {
+    private final GameEventBus bus;
+    private final Consumer<GameEvent> subscriber;
+    private final OverflowPolicy policy;
+
+    private final GameEvent[] ring;
+    private int head;   // next event to deliver
+    private int count;
+    private long dropped;
+    private volatile boolean active = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread dispatcher;
+
+    AsyncSubscriber(GameEventBus bus, Consumer<GameEvent> subscriber, int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        if (policy == null) throw new IllegalArgumentException("policy required");
+        this.bus = bus;
+        this.subscriber = subscriber;
+        this.policy = policy;
+        this.ring = new GameEvent[capacity];
+        this.dispatcher = new Thread(this::dispatchLoop, "game-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    void start() {
+        dispatcher.start();
+    }
+
+    void offer(GameEvent event) {
+        lock.lock();
+        try {
+            if (!active) return;
+            if (policy == OverflowPolicy.COALESCE_LATEST && event.getType() == GameEvent.Type.TURN_COMPLETED) {
+                if (replacePendingTurn(event))
+                    return;
+                // other events are never evicted: make room by dropping the oldest queued turn, or
+                // else drop this one
+                if (count == ring.length) {
+                    dropped++;
+                    if (!removeOldestTurn())
+                        return;
+                }
+            }
+            boolean mustWait = policy == OverflowPolicy.BLOCK
+                    || policy == OverflowPolicy.COALESCE_LATEST && event.getType() != GameEvent.Type.TURN_COMPLETED;
+            while (count == ring.length) {
+                if (mustWait) {
+                    notFull.awaitUninterruptibly();
+                    if (!active) return;
+                } else {
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    count--;
+                    dropped++;
+                }
+            }
+            ring[(head + count) % ring.length] = event;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // only the newest queued event may be replaced, so delivery order is preserved
+    private boolean replacePendingTurn(GameEvent event) {
+        if (count == 0) return false;
+        int tail = (head + count - 1) % ring.length;
+        if (ring[tail].getType() != GameEvent.Type.TURN_COMPLETED) return false;
+        ring[tail] = event;
+        dropped++;
+        return true;
+    }
+
+    // closes the gap behind the removed turn, keeping the order of everything else
+    private boolean removeOldestTurn() {
+        for (int i = 0; i < count; i++) {
+            if (ring[(head + i) % ring.length].getType() != GameEvent.Type.TURN_COMPLETED) continue;
+            for (int j = i; j < count - 1; j++)
+                ring[(head + j) % ring.length] = ring[(head + j + 1) % ring.length];
+            ring[(head + count - 1) % ring.length] = null;
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    private void dispatchLoop() {
+        while (active) {
+            GameEvent event;
+            lock.lock();
+            try {
+                while (count == 0 && active)
+                    notEmpty.awaitUninterruptibly();
+                if (!active) return;
+                event = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                count--;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                // a failing subscriber must not stop delivery, report it like an uncaught exception
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+        }
+    }
+
+    @Override
+    public void unsubscribe() {
+        bus.remove(this);
+        lock.lock();
+        try {
+            active = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package universalis.events;
 
 import universalis.Universalis;
+import universalis.snapshot.GameSnapshot;
 
 public class GameEvent {
     public enum Type {
@@ -8,12 +9,26 @@ public class GameEvent {
         GAME_FINISHED
     }
 
+    private static final long[] NO_CHANGES = new long[0];
+
     private final Type type;
     private final Universalis gameInstance;
+    private final long[] changedCells;
+    private final GameSnapshot snapshot;
 
     public GameEvent(Type type, Universalis gameInstance) {
+        this(type, gameInstance, NO_CHANGES);
+    }
+
+    public GameEvent(Type type, Universalis gameInstance, long[] changedCells) {
+        this(type, gameInstance, changedCells, null);
+    }
+
+    public GameEvent(Type type, Universalis gameInstance, long[] changedCells, GameSnapshot snapshot) {
         this.type = type;
         this.gameInstance = gameInstance;
+        this.changedCells = changedCells == null ? NO_CHANGES : changedCells;
+        this.snapshot = snapshot;
     }
 
     public Type getType() {
@@ -23,4 +38,20 @@ public class GameEvent {
     public Universalis getGameInstance() {
         return gameInstance;
     }
+
+    /**
+     * Map cells whose owner or development changed during the turn, in ascending order. Empty unless
+     * change tracking is enabled on the game's map. Shared between subscribers, do not modify.
+     */
+    public long[] getChangedCells() {
+        return changedCells;
+    }
+
+    /**
+     * State of the game as of this event, safe to read from any thread; null unless snapshot
+     * publishing is enabled on the game.
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
 }
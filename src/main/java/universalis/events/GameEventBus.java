@@ -1,14 +1,26 @@
 package universalis.events;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
+/**
+ * Fan-out of game events. Subscribers can be added and removed from any thread, including from
+ * inside a subscriber while an event is being published.
+ *
+ * subscribe delivers on the publishing (simulation) thread; subscribeAsync gives the subscriber its
+ * own bounded buffer and thread so a slow subscriber never holds up the game loop.
+ */
 public class GameEventBus {
     private static GameEventBus instance;
-    private final List<Consumer<GameEvent>> subscribers = new ArrayList<>();
+    private final List<Consumer<GameEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<AsyncSubscriber> asyncSubscribers = new CopyOnWriteArrayList<>();
 
-    private GameEventBus() {
+    /**
+     * Creates an independent bus, e.g. one per game when many games run in one JVM.
+     * UI code normally uses the shared instance from getInstance.
+     */
+    public GameEventBus() {
     }
 
     public static synchronized GameEventBus getInstance() {
@@ -18,13 +30,52 @@ public class GameEventBus {
         return instance;
     }
 
-    public void subscribe(Consumer<GameEvent> subscriber) {
-        subscribers.add(subscriber);
+    public Subscription subscribe(Consumer<GameEvent> subscriber) {
+        if (subscriber == null) throw new IllegalArgumentException("subscriber required");
+        // wrap so the same consumer can be subscribed twice and removed independently
+        Consumer<GameEvent> entry = subscriber::accept;
+        subscribers.add(entry);
+        return new Subscription() {
+            @Override
+            public void unsubscribe() {
+                subscribers.remove(entry);
+            }
+
+            @Override
+            public long getDroppedCount() {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Deliver events on a dedicated thread through a ring buffer of the given capacity.
+     */
+    public Subscription subscribeAsync(Consumer<GameEvent> subscriber, int capacity, OverflowPolicy policy) {
+        if (subscriber == null) throw new IllegalArgumentException("subscriber required");
+        AsyncSubscriber async = new AsyncSubscriber(this, subscriber, capacity, policy);
+        asyncSubscribers.add(async);
+        async.start();
+        return async;
+    }
+
+    /**
+     * False when publishing would reach nobody, so publishers can skip building the event.
+     */
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty() || !asyncSubscribers.isEmpty();
     }
 
     public void publish(GameEvent event) {
         for (Consumer<GameEvent> subscriber : subscribers) {
             subscriber.accept(event);
         }
+        for (AsyncSubscriber subscriber : asyncSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    void remove(AsyncSubscriber subscriber) {
+        asyncSubscribers.remove(subscriber);
     }
 }
@@ -0,0 +1,20 @@
+package universalis.events;
+
+/**
+ * What an asynchronous subscriber's buffer does when the game publishes faster than it consumes.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued event to make room; the publisher never waits.
+     */
+    DROP_OLDEST,
+    /**
+     * A new TURN_COMPLETED replaces a TURN_COMPLETED that is still waiting, so a slow subscriber
+     * only ever sees the latest turn. Other events are always kept.
+     */
+    COALESCE_LATEST,
+    /**
+     * The publisher waits for free space; nothing is lost but the game runs at the subscriber's pace.
+     */
+    BLOCK
+}
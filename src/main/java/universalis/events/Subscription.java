@@ -0,0 +1,16 @@
+package universalis.events;
+
+/**
+ * Handle returned by GameEventBus.subscribe.
+ */
+public interface Subscription {
+    /**
+     * Stop delivering events. Safe to call more than once and from inside the subscriber.
+     */
+    void unsubscribe();
+
+    /**
+     * Events this subscriber never received because of its overflow policy; always 0 for synchronous ones.
+     */
+    long getDroppedCount();
+}
@@ -0,0 +1,156 @@
+package universalis.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered reader for data written by BinaryWriter. Running out of input mid-value throws
+ * EOFException; malformed varints and lengths throw IOException.
+ */
+public class BinaryReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_STRING_BYTES = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long consumed;
+
+    public BinaryReader(ReadableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException("channel required");
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.limit(0);
+    }
+
+    /**
+     * Read from bytes already in memory, from the buffer's position to its limit.
+     */
+    public BinaryReader(ByteBuffer data) {
+        if (data == null) throw new IllegalArgumentException("data required");
+        this.channel = null;
+        this.buffer = data;
+        this.consumed = data.remaining();
+    }
+
+    /**
+     * Bytes consumed so far.
+     */
+    public long position() {
+        return consumed - buffer.remaining();
+    }
+
+    /**
+     * Skip ahead without reading, seeking the channel when it supports it.
+     */
+    public void skip(long bytes) throws IOException {
+        if (bytes < 0) throw new IllegalArgumentException("negative skip");
+        if (bytes <= buffer.remaining()) {
+            buffer.position(buffer.position() + (int) bytes);
+            return;
+        }
+        long beyondBuffer = bytes - buffer.remaining();
+        if (channel instanceof SeekableByteChannel seekable) {
+            if (seekable.position() + beyondBuffer > seekable.size()) throw new EOFException("skip past end of data");
+            seekable.position(seekable.position() + beyondBuffer);
+            consumed += beyondBuffer;
+            buffer.position(buffer.limit());
+            return;
+        }
+        while (bytes > 0) {
+            if (!buffer.hasRemaining()) require(1);
+            int chunk = (int) Math.min(bytes, buffer.remaining());
+            buffer.position(buffer.position() + chunk);
+            bytes -= chunk;
+        }
+    }
+
+    public int readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) require(1);
+            byte next = buffer.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Varint that must fit a non-negative int no larger than max, e.g. a count or a length.
+     */
+    public int readCount(int max) throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > max) throw new IOException("count out of range: " + value);
+        return (int) value;
+    }
+
+    public String readString() throws IOException {
+        byte[] bytes = new byte[readCount(MAX_STRING_BYTES)];
+        readBytes(bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void readBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) require(1);
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * True once every byte of the channel has been consumed.
+     */
+    public boolean atEnd() throws IOException {
+        if (buffer.hasRemaining()) return false;
+        return !fill();
+    }
+
+    private void require(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (!fill()) throw new EOFException("unexpected end of data");
+        }
+    }
+
+    // keeps unread bytes and appends more from the channel; false at end of stream
+    private boolean fill() throws IOException {
+        if (channel == null) return false;
+        buffer.compact();
+        try {
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0 && buffer.hasRemaining());
+            if (read > 0) consumed += read;
+            return read > 0;
+        } finally {
+            buffer.flip();
+        }
+    }
+}
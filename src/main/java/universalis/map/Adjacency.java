@@ -0,0 +1,43 @@
+package universalis.map;
+
+import java.util.Arrays;
+
+/**
+ * Neighbors of every cell in compressed sparse row form: the neighbors of cell c are
+ * targets[offsets[c]] up to targets[offsets[c + 1]], in Topology order. Built once per map, so
+ * neighbor walks are two array reads with no coordinate math or bounds checks.
+ */
+final class Adjacency {
+    private final int[] offsets;
+    private final int[] targets;
+
+    private Adjacency(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    static Adjacency build(Topology topology, int width, int height) {
+        int cells = width * height;
+        int[] offsets = new int[cells + 1];
+        long[] neighbors = new long[topology.maxDegree()];
+        int[] targets = new int[cells * topology.maxDegree()];
+        int size = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int count = topology.neighbors(x, y, width, height, neighbors);
+                for (int i = 0; i < count; i++)
+                    targets[size++] = (int) neighbors[i];
+                offsets[y * width + x + 1] = size;
+            }
+        }
+        return new Adjacency(offsets, Arrays.copyOf(targets, size));
+    }
+
+    int degree(long cell) {
+        return offsets[(int) cell + 1] - offsets[(int) cell];
+    }
+
+    long neighbor(long cell, int index) {
+        return targets[offsets[(int) cell] + index];
+    }
+}
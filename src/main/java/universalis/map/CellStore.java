@@ -0,0 +1,15 @@
+package universalis.map;
+
+/**
+ * Grid backends that keep development and owner outside Province objects. Provinces they hand
+ * out are views that read and write a cell through this interface.
+ */
+interface CellStore {
+    int development(long cell);
+
+    void setDevelopment(long cell, int value);
+
+    Nation owner(long cell);
+
+    void setOwner(long cell, Nation owner);
+}
@@ -0,0 +1,69 @@
+package universalis.map;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One bit per cell marking tiles whose owner or development changed since the last drain.
+ * Marking is lock-free so nations running in parallel can record changes concurrently. Bits live
+ * in pages of 4096 cells created on first use, so tracking a huge sparse map costs memory only
+ * for the parts of it that ever change.
+ */
+class ChangeTracker {
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_BITS = 64;
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_WORDS = 1 << (PAGE_SHIFT - WORD_SHIFT);
+
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    ChangeTracker(long cells) {
+        long pageCount = (cells + (1L << PAGE_SHIFT) - 1) >>> PAGE_SHIFT;
+        if (pageCount > Integer.MAX_VALUE) throw new IllegalArgumentException("map too large for change tracking");
+        this.pages = new AtomicReferenceArray<>((int) pageCount);
+    }
+
+    void mark(long cell) {
+        AtomicLongArray page = page((int) (cell >>> PAGE_SHIFT));
+        int word = (int) (cell >>> WORD_SHIFT) & (PAGE_WORDS - 1);
+        long mask = 1L << (cell & (WORD_BITS - 1));
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & mask) != 0) return;
+        } while (!page.compareAndSet(word, current, current | mask));
+    }
+
+    private AtomicLongArray page(int index) {
+        AtomicLongArray page = pages.get(index);
+        if (page != null) return page;
+        pages.compareAndSet(index, null, new AtomicLongArray(PAGE_WORDS));
+        return pages.get(index);
+    }
+
+    /**
+     * Changed cells in ascending order; clears the marks.
+     */
+    long[] drain() {
+        long[] cells = new long[16];
+        int count = 0;
+        for (int index = 0; index < pages.length(); index++) {
+            AtomicLongArray page = pages.get(index);
+            if (page == null) continue;
+            for (int word = 0; word < PAGE_WORDS; word++) {
+                long value = page.get(word);
+                if (value == 0) continue;
+                page.set(word, 0);
+                long first = ((long) index << PAGE_SHIFT) + ((long) word << WORD_SHIFT);
+                while (value != 0) {
+                    int bit = Long.numberOfTrailingZeros(value);
+                    if (count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+                    cells[count++] = first + bit;
+                    value &= value - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+}
@@ -0,0 +1,40 @@
+package universalis.map;
+
+/**
+ * Per-nation index of the cells bordering its territory, kept up to date by the Map
+ * whenever a province changes owner. Cells are stored as Map cell ids.
+ */
+public class Frontier {
+    private final LongIndexSet emptyCells = new LongIndexSet();
+    private final LongIndexSet enemyCells = new LongIndexSet();
+
+    /**
+     * Unowned cells adjacent to at least one province of the nation.
+     */
+    public LongIndexSet getEmptyCells() { return emptyCells; }
+
+    /**
+     * Cells owned by another nation and adjacent to at least one province of the nation.
+     */
+    public LongIndexSet getEnemyCells() { return enemyCells; }
+
+    void ensureCapacity(int cells) {
+        emptyCells.ensureCapacity(cells);
+        enemyCells.ensureCapacity(cells);
+    }
+
+    void markEmpty(long cell) {
+        enemyCells.remove(cell);
+        emptyCells.add(cell);
+    }
+
+    void markEnemy(long cell) {
+        emptyCells.remove(cell);
+        enemyCells.add(cell);
+    }
+
+    void unmark(long cell) {
+        emptyCells.remove(cell);
+        enemyCells.remove(cell);
+    }
+}
@@ -0,0 +1,230 @@
+package universalis.map;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Copy-on-write game state for lookahead. A fork reads the live map and keeps only the tiles it
+ * changed in an overlay, together with its own copy of each nation's army, development and province
+ * count. Forking a fork copies that overlay and those counters, so it costs O(changes + nations)
+ * however large the map is. Moves follow the same rules as Nation: expandOrAttack claims empty
+ * tiles and fights for owned ones like resolveBattle, and growArmies grows every army like growArmy.
+ * <p>
+ * Forks never write to the map, but they read it and the nations' frontiers, so those must not
+ * change while any fork of them is in use. Separate forks may be used from separate threads.
+ */
+public final class GameFork {
+    public static final int NO_OWNER = -1;
+    public static final long NONE = -1;
+    // random tile picks per move before a nation gives up looking for a target
+    private static final int TARGET_SAMPLES = 8;
+    private static final int DEVELOPMENT_BITS = 8;
+    private static final int DEVELOPMENT_MASK = (1 << DEVELOPMENT_BITS) - 1;
+
+    // set up by the root fork and only read afterwards
+    private final Map map;
+    private final Nation[] nations;
+    private final IdentityHashMap<Nation, Integer> indexes;
+
+    // tiles changed by this fork; the owner index + 1 and the development are packed per position
+    private final LongIndexSet cells;
+    private int[] states;
+    private final int[] army;
+    private final int[] development;
+    private final int[] provinces;
+
+    private GameFork(Map map, List<Nation> nationList) {
+        this.map = map;
+        this.nations = nationList.toArray(new Nation[0]);
+        this.indexes = new IdentityHashMap<>(nations.length);
+        this.cells = new LongIndexSet();
+        this.states = new int[0];
+        this.army = new int[nations.length];
+        this.development = new int[nations.length];
+        this.provinces = new int[nations.length];
+        for (int i = 0; i < nations.length; i++) {
+            indexes.put(nations[i], i);
+            army[i] = nations[i].getArmy();
+            development[i] = nations[i].getTotalDevelopment();
+            provinces[i] = nations[i].getProvinceCount();
+        }
+    }
+
+    private GameFork(GameFork parent) {
+        this.map = parent.map;
+        this.nations = parent.nations;
+        this.indexes = parent.indexes;
+        this.cells = new LongIndexSet(parent.cells);
+        this.states = Arrays.copyOf(parent.states, parent.cells.size());
+        this.army = parent.army.clone();
+        this.development = parent.development.clone();
+        this.provinces = parent.provinces.clone();
+    }
+
+    /**
+     * A fork of the game as it is now: the map plus the nations in list order.
+     */
+    public static GameFork of(Map map, List<Nation> nations) {
+        if (map == null || nations == null)
+            throw new IllegalArgumentException("map and nations required");
+        return new GameFork(map, nations);
+    }
+
+    public GameFork fork() {
+        return new GameFork(this);
+    }
+
+    /**
+     * Tiles this fork changed, which is what forking it copies.
+     */
+    public int changes() {
+        return cells.size();
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    public int nationCount() {
+        return nations.length;
+    }
+
+    public Nation nation(int index) {
+        return nations[index];
+    }
+
+    /**
+     * Position of the nation in the list the root was made from, or NO_OWNER.
+     */
+    public int indexOf(Nation nation) {
+        Integer index = indexes.get(nation);
+        return index == null ? NO_OWNER : index;
+    }
+
+    public int owner(long cell) {
+        int position = cells.indexOf(cell);
+        if (position >= 0)
+            return (states[position] >>> DEVELOPMENT_BITS) - 1;
+        Nation owner = map.getOwner(cell);
+        return owner == null ? NO_OWNER : indexOf(owner);
+    }
+
+    public int development(long cell) {
+        int position = cells.indexOf(cell);
+        return position >= 0 ? states[position] & DEVELOPMENT_MASK : map.getDevelopment(cell);
+    }
+
+    public int army(int nation) {
+        return army[nation];
+    }
+
+    public int totalDevelopment(int nation) {
+        return development[nation];
+    }
+
+    public int provinces(int nation) {
+        return provinces[nation];
+    }
+
+    /**
+     * True when the tile touches a tile the nation owns.
+     */
+    public boolean borders(int nation, long cell) {
+        for (int i = 0, degree = map.degree(cell); i < degree; i++)
+            if (owner(map.neighbor(cell, i)) == nation) return true;
+        return false;
+    }
+
+    /**
+     * Claim the tile when it is empty, otherwise fight its owner with the armies this fork holds.
+     */
+    public void expandOrAttack(int nation, long cell) {
+        int defender = owner(cell);
+        if (defender == nation)
+            return;
+        if (defender == NO_OWNER) {
+            capture(nation, cell, NO_OWNER);
+            return;
+        }
+        if (army[nation] > army[defender])
+            capture(nation, cell, defender);
+        army[nation] = Nation.attackerArmyAfterBattle(army[nation]);
+        army[defender] = Nation.defenderArmyAfterBattle(army[defender]);
+    }
+
+    private void capture(int nation, long cell, int defender) {
+        int current = development(cell);
+        if (defender != NO_OWNER) {
+            provinces[defender]--;
+            development[defender] -= current;
+        }
+        int captured = Nation.capturedDevelopment(current);
+        set(cell, nation, captured);
+        provinces[nation]++;
+        development[nation] += captured;
+    }
+
+    private void set(long cell, int owner, int value) {
+        int position = cells.indexOf(cell);
+        if (position < 0) {
+            cells.add(cell);
+            position = cells.size() - 1;
+            if (position == states.length) states = Arrays.copyOf(states, Math.max(8, position * 2));
+        }
+        states[position] = (owner + 1) << DEVELOPMENT_BITS | value;
+    }
+
+    public void growArmies() {
+        for (int i = 0; i < nations.length; i++)
+            army[i] = Nation.grownArmy(army[i], development[i]);
+    }
+
+    /**
+     * A tile the nation could move into next, picked at random like expandOrAttack: an empty one if
+     * any turns up, otherwise an enemy one, or NONE. Candidates are the nation's frontier on the live
+     * map plus the tiles around what this fork changed, checked against the fork; so the pick is
+     * only close to uniform, which is all a rollout needs.
+     */
+    public long pickTarget(int nation, Random random) {
+        Frontier frontier = nations[nation].getFrontier();
+        LongIndexSet emptyCells = frontier.getEmptyCells();
+        LongIndexSet enemyCells = frontier.getEnemyCells();
+        int maxDegree = map.getMaxDegree();
+        int live = emptyCells.size() + enemyCells.size();
+        long pool = live + (long) cells.size() * maxDegree;
+        if (pool == 0 || pool > Integer.MAX_VALUE)
+            return NONE;
+        long enemy = NONE;
+        for (int attempt = 0; attempt < TARGET_SAMPLES; attempt++) {
+            int pick = random.nextInt((int) pool);
+            long cell;
+            if (pick < emptyCells.size()) {
+                cell = emptyCells.get(pick);
+            } else if (pick < live) {
+                cell = enemyCells.get(pick - emptyCells.size());
+            } else {
+                long changed = cells.get((pick - live) / maxDegree);
+                int direction = (pick - live) % maxDegree;
+                if (owner(changed) != nation || direction >= map.degree(changed)) continue;
+                cell = map.neighbor(changed, direction);
+            }
+            int owner = owner(cell);
+            if (owner == nation || !borders(nation, cell)) continue;
+            if (owner == NO_OWNER) return cell;
+            if (enemy == NONE) enemy = cell;
+        }
+        return enemy;
+    }
+
+    /**
+     * The nation's share of all owned tiles, between 0 and 1.
+     */
+    public double provinceShare(int nation) {
+        long owned = 0;
+        for (int count : provinces)
+            owned += count;
+        return owned == 0 ? 0 : (double) provinces[nation] / owned;
+    }
+}
@@ -0,0 +1,153 @@
+package universalis.map;
+
+import java.util.Arrays;
+
+/**
+ * Set of long keys with O(1) add, remove, contains and positional access.
+ * Items are kept densely packed so a uniform random pick is just get(rng.nextInt(size())).
+ * Removal swaps the last item into the freed slot, so positions are not stable across removals.
+ */
+public class LongIndexSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] items = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // open addressing table: key -> position in items
+    private long[] keys = newKeyTable(INITIAL_CAPACITY * 2);
+    private int[] positions = new int[INITIAL_CAPACITY * 2];
+    private int mask = INITIAL_CAPACITY * 2 - 1;
+
+    public LongIndexSet() {
+    }
+
+    /**
+     * Copy of another set with the same items in the same positions.
+     */
+    public LongIndexSet(LongIndexSet other) {
+        items = other.items.clone();
+        size = other.size;
+        keys = other.keys.clone();
+        positions = other.positions.clone();
+        mask = other.mask;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public long get(int position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("position " + position);
+        return items[position];
+    }
+
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Position of the key in iteration order, or -1 if absent.
+     */
+    public int indexOf(long key) {
+        int slot = find(key);
+        return slot < 0 ? -1 : positions[slot];
+    }
+
+    public boolean add(long key) {
+        if (key == EMPTY) throw new IllegalArgumentException("reserved key");
+        if (find(key) >= 0) return false;
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        items[size] = key;
+        insert(key, size);
+        size++;
+        return true;
+    }
+
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (slot < 0) return false;
+        int position = positions[slot];
+        deleteSlot(slot);
+        int last = --size;
+        if (position != last) {
+            long moved = items[last];
+            items[position] = moved;
+            positions[find(moved)] = position;
+        }
+        return true;
+    }
+
+    /**
+     * Make room for the given number of items, so adding up to that many allocates nothing.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > items.length) items = Arrays.copyOf(items, capacity);
+        int table = keys.length;
+        while (capacity * 2 > table)
+            table *= 2;
+        if (table > keys.length) rehash(table);
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (true) {
+            long current = keys[slot];
+            if (current == EMPTY) return -1;
+            if (current == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(long key, int position) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+        keys[slot] = key;
+        positions[slot] = position;
+    }
+
+    // backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                keys[hole] = keys[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        keys = newKeyTable(capacity);
+        positions = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < size; i++)
+            insert(items[i], i);
+    }
+
+    private static long[] newKeyTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -1,38 +1,277 @@
 package universalis.map;
 
 import universalis.map.factory.ProvinceFactory;
+import universalis.random.SplitMixRandom;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Map {
-    private Province[][] grid;
+    /**
+     * OBJECT keeps one Province per tile; PRIMITIVE packs development and owner ids into flat
+     * arrays and hands out Province views, which is what makes 10M+ tile maps fit in memory.
+     * SPARSE only stores 64x64 chunks that have been changed, so memory follows the explored
+     * area and 100k x 100k worlds are possible.
+     */
+    public enum Storage { OBJECT, PRIMITIVE, SPARSE }
+
+    private static final long[] NO_CHANGES = new long[0];
+
+    // maps up to this size get an adjacency table; bigger ones, sparse worlds in particular,
+    // work neighbors out from the topology on every lookup
+    private static final int ADJACENCY_TABLE_MAX_CELLS = 1 << 20;
+
+    private ProvinceGrid grid;
+    private Topology topology = Topology.SQUARE;
+    private Adjacency adjacency;
+    // null unless someone asked for per-turn change sets
+    private volatile ChangeTracker changes;
+    // Zobrist hash of who owns what and the number of owned cells, both kept up to date in
+    // ownerChanged; atomic because parallel turns change owners from several threads at once
+    private final AtomicLong stateHash = new AtomicLong();
+    private final AtomicLong ownedCells = new AtomicLong();
     private Map() {}
     private static final int MAP_EDGE = 0;
     private static final int MIN_MAP_SIZE = 0;
-    private static final int X = 0;
-    private static final int Y = 1;
 
-    public int getWidth() { return grid == null ? MIN_MAP_SIZE : grid[X].length; }
-    public int getHeight() { return grid == null ? MIN_MAP_SIZE : grid.length; }
+    public Storage getStorage() {
+        if (grid instanceof PrimitiveGrid) return Storage.PRIMITIVE;
+        return grid instanceof SparseGrid ? Storage.SPARSE : Storage.OBJECT;
+    }
+
+    public int getWidth() { return grid == null ? MIN_MAP_SIZE : grid.width(); }
+    public int getHeight() { return grid == null ? MIN_MAP_SIZE : grid.height(); }
+
+    public Topology getTopology() { return topology; }
 
     public Province getProvince(int x, int y) {
-        checkBounds(x, y);
-        return grid[y][x];
+        requireInBounds(x, y);
+        return grid.get(x, y);
+    }
+
+    public Province getProvince(long cell) {
+        return getProvince(xOf(cell), yOf(cell));
     }
 
     public void setProvince(int x, int y, Province province) {
-        checkBounds(x, y);
-        grid[y][x] = province;
+        requireInBounds(x, y);
+        Nation previousOwner = grid.ownerAt(x, y);
+        grid.set(x, y, province);
+        Nation owner = grid.ownerAt(x, y);
+        markChanged(cellOf(x, y));
+        if (previousOwner != owner) ownerChanged(cellOf(x, y), previousOwner, owner);
+    }
+
+    /**
+     * Owner of a cell without materializing its Province.
+     */
+    public Nation getOwner(long cell) {
+        int x = xOf(cell);
+        int y = yOf(cell);
+        requireInBounds(x, y);
+        return grid.ownerAt(x, y);
+    }
+
+    /**
+     * Development of a cell without materializing its Province; 0 for an empty tile.
+     */
+    public int getDevelopment(long cell) {
+        int x = xOf(cell);
+        int y = yOf(cell);
+        requireInBounds(x, y);
+        return grid.developmentAt(x, y);
+    }
+
+    /**
+     * Number of neighbors of a cell; together with neighbor this walks them without a buffer.
+     */
+    public int degree(long cell) {
+        Adjacency table = adjacency;
+        return table != null ? table.degree(cell) : topology.degree(xOf(cell), yOf(cell), getWidth(), getHeight());
     }
 
+    /**
+     * The index-th neighbor of a cell, 0 <= index < degree(cell).
+     */
+    public long neighbor(long cell, int index) {
+        Adjacency table = adjacency;
+        return table != null ? table.neighbor(cell, index) : topology.neighbor(xOf(cell), yOf(cell), index, getWidth(), getHeight());
+    }
+
+    public int getMaxDegree() {
+        return topology.maxDegree();
+    }
+
+    /**
+     * Write the neighbors of a cell into out (length >= getMaxDegree()) and return how many there are.
+     */
+    public int neighbors(long cell, long[] out) {
+        int count = degree(cell);
+        for (int i = 0; i < count; i++)
+            out[i] = neighbor(cell, i);
+        return count;
+    }
+
+    /**
+     * Cell ids number the tiles row by row, so they stay unique for any width * height.
+     */
+    public long cellOf(int x, int y) { return (long) y * getWidth() + x; }
+    public int xOf(long cell) { return (int) (cell % getWidth()); }
+    public int yOf(long cell) { return (int) (cell / getWidth()); }
+
+    /**
+     * True when x/y lies outside the map.
+     */
     public boolean checkBounds(int x, int y) {
         if (grid == null) throw new IllegalStateException("Map not built yet");
         return x < MAP_EDGE || x >= getWidth() || y < MAP_EDGE || y >= getHeight();
     }
 
+    private void requireInBounds(int x, int y) {
+        if (checkBounds(x, y)) throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside the map");
+    }
+
+    /**
+     * Record which cells change owner or development so renderers can redraw only those.
+     * Off by default; turning it on starts from an empty change set.
+     */
+    public void setChangeTracking(boolean enabled) {
+        if (grid == null) throw new IllegalStateException("Map not built yet");
+        changes = enabled ? new ChangeTracker((long) getWidth() * getHeight()) : null;
+    }
+
+    public boolean isChangeTracking() {
+        return changes != null;
+    }
+
+    /**
+     * Cells changed since the previous call, in ascending order; empty when tracking is off.
+     */
+    public long[] drainChangedCells() {
+        ChangeTracker tracker = changes;
+        return tracker == null ? NO_CHANGES : tracker.drain();
+    }
+
+    void markChanged(long cell) {
+        ChangeTracker tracker = changes;
+        if (tracker != null) tracker.mark(cell);
+    }
+
+    /**
+     * Keeps the frontier index of every affected nation in sync after a cell changes owner.
+     * Only the cell and its direct neighbors can change frontier membership.
+     */
+    void ownerChanged(long cell, Nation previous, Nation current) {
+        markChanged(cell);
+        stateHash.accumulateAndGet(ownerKey(cell, previous) ^ ownerKey(cell, current), (hash, delta) -> hash ^ delta);
+        if (previous == null) ownedCells.incrementAndGet();
+        else if (current == null) ownedCells.decrementAndGet();
+        refreshFrontier(cell, previous);
+        refreshFrontier(cell, current);
+        for (int i = 0, degree = degree(cell); i < degree; i++) {
+            long neighbor = neighbor(cell, i);
+            Nation neighborOwner = ownerAt(neighbor);
+            updateBorderEdge(neighborOwner, previous, -1);
+            updateBorderEdge(neighborOwner, current, 1);
+            if (neighborOwner != previous && neighborOwner != current) refreshFrontier(cell, neighborOwner);
+            refreshFrontier(neighbor, previous);
+            refreshFrontier(neighbor, current);
+        }
+    }
+
+    // an edge between two cells counts toward the border length of each owner on either side
+    // when the owners differ; delta removes (-1) or adds (+1) the edge as seen from cellOwner
+    private void updateBorderEdge(Nation neighborOwner, Nation cellOwner, int delta) {
+        if (neighborOwner == cellOwner) return;
+        if (cellOwner != null) cellOwner.borderChanged(delta);
+        if (neighborOwner != null) neighborOwner.borderChanged(delta);
+    }
+
+    /**
+     * Number of sides between a tile owned by the nation and an in-bounds tile it does not own.
+     * Full scan, meant for consistency checks only.
+     */
+    public int countBorderLength(Nation nation) {
+        int length = 0;
+        long cells = (long) getWidth() * getHeight();
+        for (long cell = 0; cell < cells; cell++) {
+            if (ownerAt(cell) != nation) continue;
+            for (int i = 0, degree = degree(cell); i < degree; i++)
+                if (ownerAt(neighbor(cell, i)) != nation) length++;
+        }
+        return length;
+    }
+
+    /**
+     * 64-bit hash of the ownership of every cell, XOR of one key per (cell, owner) pair, so two maps
+     * with the same owners everywhere hash the same. Updated per ownership change, so reading it
+     * costs nothing whatever the map size; development is not part of it.
+     */
+    public long getStateHash() {
+        return stateHash.get();
+    }
+
+    public long getOwnedCellCount() {
+        return ownedCells.get();
+    }
+
+    /**
+     * Recompute the state hash and owned cell count from the grid and throw if the incremental
+     * values disagree. Full scan, meant for consistency checks only.
+     */
+    public void verifyStateHash() {
+        long hash = 0;
+        long owned = 0;
+        for (int y = 0; y < getHeight(); y++) {
+            for (int x = 0; x < getWidth(); x++) {
+                Nation owner = grid.ownerAt(x, y);
+                if (owner == null) continue;
+                hash ^= ownerKey(cellOf(x, y), owner);
+                owned++;
+            }
+        }
+        if (hash != stateHash.get())
+            throw new IllegalStateException("state hash " + stateHash.get() + " but recount is " + hash);
+        if (owned != ownedCells.get())
+            throw new IllegalStateException("owned cells " + ownedCells.get() + " but recount is " + owned);
+    }
+
+    // for grids filled without ownerChanged, i.e. restored from a checkpoint
+    void resetStateHash(long hash, long owned) {
+        stateHash.set(hash);
+        ownedCells.set(owned);
+    }
+
+    // empty cells have key 0 so they drop out of the XOR
+    static long ownerKey(long cell, Nation owner) {
+        return owner == null ? 0 : SplitMixRandom.mix64(owner.stateKey() + cell * 0x9E3779B97F4A7C15L);
+    }
+
+    private void refreshFrontier(long cell, Nation nation) {
+        if (nation == null) return;
+        Frontier frontier = nation.getFrontier();
+        Nation owner = ownerAt(cell);
+        if (owner == nation || !bordersNation(cell, nation)) {
+            frontier.unmark(cell);
+        } else if (owner == null) {
+            frontier.markEmpty(cell);
+        } else {
+            frontier.markEnemy(cell);
+        }
+    }
+
+    private boolean bordersNation(long cell, Nation nation) {
+        for (int i = 0, degree = degree(cell); i < degree; i++)
+            if (ownerAt(neighbor(cell, i)) == nation) return true;
+        return false;
+    }
+
+    private Nation ownerAt(long cell) {
+        return grid.ownerAt(xOf(cell), yOf(cell));
+    }
+
     public List<int[]> allCoordinates() {
         List<int[]> coords = new ArrayList<>(getWidth() * getHeight());
         for (int row = 0; row < getHeight(); row++) {
@@ -43,32 +282,93 @@ public class Map {
         return coords;
     }
 
+    /**
+     * Free storage held for parts of the map that went back to their starting state. Only SPARSE
+     * storage holds any; call between turns, never while nations are taking them.
+     */
+    public void trimStorage() {
+        if (grid instanceof SparseGrid sparse) sparse.releaseEmptyChunks();
+    }
+
+    // empty map of the given size, filled in cell by cell by MapCheckpoint; seed is only used by SPARSE
+    static Map allocate(Storage storage, Topology topology, int width, int height, long seed) {
+        Map map = new Map();
+        map.topology = topology;
+        map.grid = switch (storage) {
+            case OBJECT -> new ObjectGrid(map, width, height);
+            case PRIMITIVE -> new PrimitiveGrid(map, width, height);
+            case SPARSE -> new SparseGrid(map, width, height, seed);
+        };
+        map.buildAdjacency();
+        return map;
+    }
+
+    private void buildAdjacency() {
+        long cells = (long) getWidth() * getHeight();
+        adjacency = cells <= ADJACENCY_TABLE_MAX_CELLS ? Adjacency.build(topology, getWidth(), getHeight()) : null;
+    }
+
+    ProvinceGrid grid() {
+        return grid;
+    }
+
     public static class Builder {
         private final Random random;
         private final Map map = new Map();
+        private Storage storage = Storage.OBJECT;
 
         public Builder(Random random) { this.random = random; }
 
+        /**
+         * Select how tiles connect, SQUARE by default; must be called before create.
+         */
+        public Builder topology(Topology topology) {
+            if (topology == null) throw new IllegalArgumentException("topology required");
+            if (map.grid != null) throw new IllegalStateException("topology must be chosen before create");
+            map.topology = topology;
+            return this;
+        }
+
+        /**
+         * Select the storage backend; must be called before create.
+         */
+        public Builder storage(Storage storage) {
+            if (map.grid != null) throw new IllegalStateException("storage must be chosen before create");
+            this.storage = storage;
+            return this;
+        }
+
         public Builder create(int size) {
             if (size <= MIN_MAP_SIZE) throw new IllegalArgumentException("invalid dimensions");
-            map.grid = new Province[size][size];
-            for (int row = 0; row < size; row++) {
-                for (int col = 0; col < size; col++) {
-                    map.grid[row][col] = ProvinceFactory.createProvince();
-                }
-            }
-            return this;
+            return createNonSquare(size, size);
         }
 
         public Builder createNonSquare(int xSize, int ySize) {
             if (xSize <= MIN_MAP_SIZE || ySize <= MIN_MAP_SIZE) throw new IllegalArgumentException("invalid dimensions");
-            map.grid = new Province[ySize][xSize];
+            fillGrid(xSize, ySize);
+            map.buildAdjacency();
+            return this;
+        }
+
+        private void fillGrid(int xSize, int ySize) {
+            if (storage == Storage.PRIMITIVE) {
+                PrimitiveGrid primitive = new PrimitiveGrid(map, xSize, ySize);
+                map.grid = primitive;
+                for (long cell = 0; cell < (long) xSize * ySize; cell++)
+                    primitive.setDevelopment(cell, Province.startingDevelopment(random));
+                return;
+            }
+            if (storage == Storage.SPARSE) {
+                // one draw instead of one per tile; tiles work out their development from it on demand
+                map.grid = new SparseGrid(map, xSize, ySize, random.nextLong());
+                return;
+            }
+            map.grid = new ObjectGrid(map, xSize, ySize);
             for (int row = 0; row < ySize; row++) {
                 for (int col = 0; col < xSize; col++) {
-                    map.grid[row][col] = ProvinceFactory.createProvince();
+                    map.grid.set(col, row, ProvinceFactory.createProvince(random));
                 }
             }
-            return this;
         }
 
         /**
@@ -76,12 +376,18 @@ public class Map {
          */
         public Builder seedNations(List<Nation> nations) {
             if (map.grid == null) throw new IllegalStateException("call create first");
-            List<int[]> coords = map.allCoordinates();
-            Collections.shuffle(coords, random);
-            if (nations.size() > coords.size()) throw new IllegalArgumentException("too many nations");
+            int width = map.getWidth();
+            int height = map.getHeight();
+            if (nations.size() > (long) width * height) throw new IllegalArgumentException("too many nations");
             for (int i = 0; i < nations.size(); i++) {
-                int[] position = coords.get(i);
-                Province province = map.getProvince(position[X], position[Y]);
+                // sample cells directly instead of shuffling every coordinate, which large maps cannot afford
+                int x;
+                int y;
+                do {
+                    x = random.nextInt(width);
+                    y = random.nextInt(height);
+                } while (map.grid.ownerAt(x, y) != null);
+                Province province = map.getProvince(x, y);
                 province.setOwner(nations.get(i));
                 nations.get(i).addProvinceToNationOnSetup(province);
             }
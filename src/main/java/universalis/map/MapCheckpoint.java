@@ -0,0 +1,315 @@
+package universalis.map;
+
+import universalis.io.BinaryReader;
+import universalis.io.BinaryWriter;
+import universalis.random.SplitMixRandom;
+import universalis.strategy.MctsStrategy;
+import universalis.strategy.OffensiveStrategy;
+import universalis.strategy.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Binary form of a Map and the nations playing on it, the body of a Universalis checkpoint.
+ * <p>
+ * Layout: width, height, storage and topology (plus the map seed for SPARSE); one record per nation (name,
+ * strategy class and, for an MctsStrategy, its budget, iterations, depth and workers, army, random
+ * stream state); the cells in blocks of development bytes followed
+ * by run-length encoded owner indexes, only for changed chunks on a SPARSE map; then each
+ * nation's province list and frontier as delta-encoded cell ids. Lists are
+ * stored in their in-memory order because random picks index into them, which is what lets a
+ * restored game continue exactly like the original.
+ */
+public final class MapCheckpoint {
+    private static final int BLOCK_CELLS = 1 << 16;
+    private static final int MAX_NATIONS = Short.MAX_VALUE;
+    private static final int NO_OWNER = 0;
+
+    private MapCheckpoint() {}
+
+    public static void write(BinaryWriter out, Map map, List<Nation> nations) throws IOException {
+        int width = map.getWidth();
+        int height = map.getHeight();
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeByte(map.getStorage().ordinal());
+        out.writeByte(map.getTopology().ordinal());
+        if (map.grid() instanceof SparseGrid sparse)
+            out.writeLong(sparse.seed());
+
+        // owner index 0 is an empty cell, nation i is stored as i + 1
+        java.util.Map<Nation, Integer> indexes = new IdentityHashMap<>();
+        out.writeVarLong(nations.size());
+        for (Nation nation : nations) {
+            indexes.put(nation, indexes.size() + 1);
+            writeNation(out, nation);
+        }
+
+        long[] block = new long[BLOCK_CELLS];
+        byte[] development = new byte[BLOCK_CELLS];
+        if (map.grid() instanceof SparseGrid sparse) {
+            // only chunks holding changes; the rest comes back from the seed
+            int[] chunks = sparse.changedChunks();
+            out.writeVarLong(chunks.length);
+            int previous = 0;
+            for (int chunk : chunks) {
+                out.writeVarLong(chunk - previous);
+                previous = chunk;
+                writeBlock(out, map, block, chunkCells(map, sparse, chunk, block), development, indexes);
+            }
+        } else {
+            long cells = (long) width * height;
+            for (long start = 0; start < cells; start += BLOCK_CELLS) {
+                int length = (int) Math.min(BLOCK_CELLS, cells - start);
+                for (int i = 0; i < length; i++)
+                    block[i] = start + i;
+                writeBlock(out, map, block, length, development, indexes);
+            }
+        }
+
+        for (Nation nation : nations) {
+            List<Province> provinces = nation.getProvinces();
+            out.writeVarLong(provinces.size());
+            long previous = 0;
+            for (Province province : provinces) {
+                out.writeSignedVarLong(province.getCell() - previous);
+                previous = province.getCell();
+            }
+            writeCells(out, nation.getFrontier().getEmptyCells());
+            writeCells(out, nation.getFrontier().getEnemyCells());
+        }
+    }
+
+    /**
+     * Read a map written by write, adding its nations to the given list in their saved order.
+     */
+    public static Map read(BinaryReader in, List<Nation> nations) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        if (width <= 0 || height <= 0) throw new IOException("invalid map size " + width + "x" + height);
+        int storageOrdinal = in.readByte();
+        if (storageOrdinal < 0 || storageOrdinal >= Map.Storage.values().length)
+            throw new IOException("unknown storage " + storageOrdinal);
+        Map.Storage storage = Map.Storage.values()[storageOrdinal];
+        int topologyOrdinal = in.readByte();
+        if (topologyOrdinal < 0 || topologyOrdinal >= Topology.values().length)
+            throw new IOException("unknown topology " + topologyOrdinal);
+        Topology topology = Topology.values()[topologyOrdinal];
+        long seed = storage == Map.Storage.SPARSE ? in.readLong() : 0;
+        Map map;
+        try {
+            map = Map.allocate(storage, topology, width, height, seed);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        int nationCount = in.readCount(MAX_NATIONS);
+        Nation[] byIndex = new Nation[nationCount + 1];
+        for (int i = 1; i <= nationCount; i++)
+            byIndex[i] = readNation(in);
+
+        ProvinceGrid grid = map.grid();
+        long cells = (long) width * height;
+        long[] owned = new long[nationCount + 1];
+        long[] block = new long[BLOCK_CELLS];
+        byte[] development = new byte[BLOCK_CELLS];
+        if (grid instanceof SparseGrid sparse) {
+            int chunkCount = in.readCount(sparse.chunkCount());
+            int chunk = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                long next = chunk + in.readVarLong();
+                if ((i > 0 && next == chunk) || next >= sparse.chunkCount()) throw new IOException("invalid chunk " + next);
+                chunk = (int) next;
+                readBlock(in, map, block, chunkCells(map, sparse, chunk, block), development, byIndex, owned);
+            }
+        } else {
+            for (long start = 0; start < cells; start += BLOCK_CELLS) {
+                int length = (int) Math.min(BLOCK_CELLS, cells - start);
+                for (int i = 0; i < length; i++)
+                    block[i] = start + i;
+                readBlock(in, map, block, length, development, byIndex, owned);
+            }
+        }
+
+        for (int index = 1; index <= nationCount; index++) {
+            Nation nation = byIndex[index];
+            int count = in.readCount(Integer.MAX_VALUE);
+            if (count != owned[index]) throw new IOException("province list of " + nation.getName() + " does not match the map");
+            long cell = 0;
+            for (int i = 0; i < count; i++) {
+                cell = nextCell(in, cell, cells);
+                if (grid.ownerAt(map.xOf(cell), map.yOf(cell)) != nation)
+                    throw new IOException("province list of " + nation.getName() + " does not match the map");
+                nation.restoreProvince(map.getProvince(cell));
+            }
+            // re-adding in saved order reproduces the positions random picks index into
+            Frontier frontier = nation.getFrontier();
+            int empty = in.readCount(Integer.MAX_VALUE);
+            cell = 0;
+            for (int i = 0; i < empty; i++)
+                frontier.markEmpty(cell = nextCell(in, cell, cells));
+            int enemy = in.readCount(Integer.MAX_VALUE);
+            cell = 0;
+            for (int i = 0; i < enemy; i++)
+                frontier.markEnemy(cell = nextCell(in, cell, cells));
+            nations.add(nation);
+        }
+
+        restoreBorderLengths(map, nations);
+        return map;
+    }
+
+    private static void writeNation(BinaryWriter out, Nation nation) throws IOException {
+        if (!(nation.getRandom() instanceof SplitMixRandom random))
+            throw new IllegalStateException(nation.getName() + " does not draw from a SplitMixRandom stream");
+        Strategy strategy = nation.getStrategy();
+        if (strategy instanceof OffensiveStrategy offensive && offensive.getRandom() != null)
+            throw new IllegalStateException(nation.getName() + " has a strategy with its own Random");
+        if (strategy instanceof MctsStrategy && strategy.getClass() != MctsStrategy.class)
+            throw new IllegalStateException(strategy.getClass().getName() + " extends MctsStrategy, whose settings only save for MctsStrategy itself");
+        if (strategy != null) {
+            try {
+                strategy.getClass().getConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(strategy.getClass().getName() + " has no public no-arg constructor");
+            }
+        }
+        out.writeString(nation.getName());
+        out.writeString(strategy == null ? "" : strategy.getClass().getName());
+        if (strategy instanceof MctsStrategy mcts) {
+            out.writeVarLong(mcts.getBudget().toNanos());
+            out.writeVarLong(mcts.getIterations());
+            out.writeVarLong(mcts.getDepth());
+            out.writeVarLong(mcts.getWorkers());
+        }
+        out.writeInt(nation.getArmy());
+        out.writeLong(random.getState());
+        out.writeLong(random.getGamma());
+    }
+
+    private static Nation readNation(BinaryReader in) throws IOException {
+        String name = in.readString();
+        String strategyClass = in.readString();
+        Strategy strategy = null;
+        if (strategyClass.equals(MctsStrategy.class.getName())) {
+            try {
+                strategy = new MctsStrategy(Duration.ofNanos(in.readVarLong()), in.readCount(Integer.MAX_VALUE),
+                        in.readCount(Integer.MAX_VALUE), in.readCount(Integer.MAX_VALUE));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("invalid MctsStrategy settings for " + name, e);
+            }
+        } else if (!strategyClass.isEmpty()) {
+            try {
+                strategy = Class.forName(strategyClass).asSubclass(Strategy.class).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException("cannot create strategy " + strategyClass, e);
+            }
+        }
+        Nation nation = new Nation(name, strategy);
+        nation.setArmy(in.readInt());
+        long state = in.readLong();
+        long gamma = in.readLong();
+        if ((gamma & 1L) == 0) throw new IOException("invalid random stream for " + name);
+        nation.setRandom(SplitMixRandom.restore(state, gamma));
+        return nation;
+    }
+
+    private static void writeCells(BinaryWriter out, LongIndexSet cells) throws IOException {
+        out.writeVarLong(cells.size());
+        long previous = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            long cell = cells.get(i);
+            out.writeSignedVarLong(cell - previous);
+            previous = cell;
+        }
+    }
+
+    private static long nextCell(BinaryReader in, long previous, long cells) throws IOException {
+        long cell = previous + in.readSignedVarLong();
+        if (cell < 0 || cell >= cells) throw new IOException("cell out of range: " + cell);
+        return cell;
+    }
+
+    private static int indexOf(java.util.Map<Nation, Integer> indexes, Nation owner) {
+        if (owner == null) return NO_OWNER;
+        Integer index = indexes.get(owner);
+        if (index == null) throw new IllegalStateException(owner.getName() + " owns cells but is not in the game");
+        return index;
+    }
+
+    // one pass over the owned cells instead of countBorderLength per nation, also rebuilding the
+    // state hash; province lists hold every owned cell once, checked while reading them
+    private static void restoreBorderLengths(Map map, List<Nation> nations) {
+        long hash = 0;
+        long owned = 0;
+        for (Nation nation : nations) {
+            for (Province province : nation.getProvinces()) {
+                long cell = province.getCell();
+                hash ^= Map.ownerKey(cell, nation);
+                owned++;
+                for (int i = 0, degree = map.degree(cell); i < degree; i++)
+                    if (map.getOwner(map.neighbor(cell, i)) != nation) nation.borderChanged(1);
+            }
+        }
+        map.resetStateHash(hash, owned);
+    }
+
+    // in-bounds cells of a sparse chunk, row by row
+    private static int chunkCells(Map map, SparseGrid grid, int chunk, long[] cells) {
+        int firstX = grid.chunkX(chunk);
+        int firstY = grid.chunkY(chunk);
+        int endX = Math.min(firstX + SparseGrid.CHUNK_SIZE, map.getWidth());
+        int endY = Math.min(firstY + SparseGrid.CHUNK_SIZE, map.getHeight());
+        int count = 0;
+        for (int y = firstY; y < endY; y++)
+            for (int x = firstX; x < endX; x++)
+                cells[count++] = map.cellOf(x, y);
+        return count;
+    }
+
+    // development bytes of the cells, then their owner indexes run-length encoded
+    private static void writeBlock(BinaryWriter out, Map map, long[] cells, int length, byte[] development,
+            java.util.Map<Nation, Integer> indexes) throws IOException {
+        ProvinceGrid grid = map.grid();
+        for (int i = 0; i < length; i++)
+            development[i] = (byte) grid.developmentAt(map.xOf(cells[i]), map.yOf(cells[i]));
+        out.writeBytes(development, 0, length);
+
+        int runOwner = -1;
+        int runLength = 0;
+        for (int i = 0; i < length; i++) {
+            int owner = indexOf(indexes, grid.ownerAt(map.xOf(cells[i]), map.yOf(cells[i])));
+            if (owner != runOwner && runLength > 0) {
+                out.writeVarLong(runOwner);
+                out.writeVarLong(runLength);
+                runLength = 0;
+            }
+            runOwner = owner;
+            runLength++;
+        }
+        out.writeVarLong(runOwner);
+        out.writeVarLong(runLength);
+    }
+
+    private static void readBlock(BinaryReader in, Map map, long[] cells, int length, byte[] development,
+            Nation[] byIndex, long[] owned) throws IOException {
+        ProvinceGrid grid = map.grid();
+        in.readBytes(development, 0, length);
+        int filled = 0;
+        while (filled < length) {
+            int owner = in.readCount(byIndex.length - 1);
+            int runLength = in.readCount(length - filled);
+            if (runLength == 0) throw new IOException("empty run");
+            owned[owner] += runLength;
+            for (int i = filled; i < filled + runLength; i++) {
+                long cell = cells[i];
+                if (development[i] < 0) throw new IOException("invalid development at cell " + cell);
+                grid.restore(map.xOf(cell), map.yOf(cell), development[i], byIndex[owner]);
+            }
+            filled += runLength;
+        }
+    }
+}
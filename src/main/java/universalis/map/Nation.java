@@ -1,20 +1,22 @@
 package universalis.map;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 import universalis.Universalis;
+import universalis.random.SplitMixRandom;
 import universalis.strategy.*;
 import universalis.strategy.Strategy;
 
 public class Nation {
     private final String name;
+    // identifies the nation in Map state hashes; derived from the name so it is the same every run
+    private final long stateKey;
     private Strategy strategy;
-    private final List<Province> provinces = new ArrayList<>();
-    private static final int X = 0;
-    private static final int Y = 1;
-    private static final int TARGET_INDEX = 1;
+    private final ProvinceSet provinces = new ProvinceSet();
+    private final Frontier frontier = new Frontier();
+    // id in the compact grid that last looked this nation up, tagged with that grid's NationIds; see NationIds.idOf
+    volatile long compactId = -1;
 
     private static final int MINIMUM_ARMY_SIZE = 1;
     private static final int ARMY_GROWTH_MODIFIER = 5;
@@ -22,25 +24,118 @@ public class Nation {
     private static final int ARMY_LOSS_FACTOR = 2;
     private static final int CAPTURE_DEVELOPMENT_PENALTY = -1;
 
+    // the strategies takeTurn switches between keep no state, so every nation shares one of each
+    private static final Strategy DEFENSIVE = new DefensiveStrategy();
+    private static final Strategy OFFENSIVE = new OffensiveStrategy();
+
     private int army;
+    // per-nation random stream so turns draw the same numbers whatever order nations run in;
+    // replaced by a stream derived from the game seed when the nation joins a Universalis
+    private Random random = new Random();
+
+    // aggregates maintained incrementally; see verifyAggregates for the full recount
+    private int totalDevelopment;
+    private int borderLength;
+
+    // expansions, battles, captures and ties not yet passed on, counted when the game records
+    // metrics; plain fields because only this nation's move writes them
+    private boolean countMoves;
+    private int expansions;
+    private int battles;
+    private int captures;
+    private int ties;
+
+    // development phase scratch: points drawn per province position, reused between turns
+    private byte[] developmentHits = new byte[0];
 
     public Nation(String name, Strategy strategy) {
         this.name = name;
         this.strategy = strategy;
+        this.stateKey = stateKeyOf(name);
+    }
+
+    // 64-bit FNV-1a of the name, spread with mix64 so similar names get unrelated keys
+    private static long stateKeyOf(String name) {
+        long hash = 0xcbf29ce484222325L;
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                hash ^= name.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return SplitMixRandom.mix64(hash);
+    }
+
+    long stateKey() {
+        return stateKey;
     }
 
     public String getName() {
         return name;
     }
 
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Whether this nation counts its expansions and battles, for the game to collect with
+     * drainMoveCounts and pass on to its TurnMetrics.
+     */
+    public void setCountingMoves(boolean countMoves) {
+        this.countMoves = countMoves;
+    }
+
+    /**
+     * Add the expansions, battles, captures and ties counted since the last call to counts[0..3]
+     * and start counting from zero.
+     */
+    public void drainMoveCounts(long[] counts) {
+        counts[0] += expansions;
+        counts[1] += battles;
+        counts[2] += captures;
+        counts[3] += ties;
+        expansions = battles = captures = ties = 0;
+    }
+
     public void setStrategy(Strategy strategy) {
         this.strategy = strategy;
     }
 
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("random required");
+        this.random = random;
+    }
+
+    /**
+     * Provinces in the order random picks index into; read-only. Removing a province moves the
+     * last one into its position.
+     */
     public List<Province> getProvinces() {
         return provinces;
     }
 
+    /**
+     * Empty and enemy cells bordering this nation, maintained by the Map on ownership changes.
+     */
+    public Frontier getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * Size the province list and frontier for the given number of provinces and frontier cells, so
+     * growing up to it allocates nothing.
+     */
+    public void ensureCapacity(int cells) {
+        provinces.ensureCapacity(cells);
+        frontier.ensureCapacity(cells);
+    }
+
     public int getProvinceCount() {
         return provinces.size();
     }
@@ -55,103 +150,172 @@ public class Nation {
 
     public void captureProvince(Province province) {
         if (province != null && !provinces.contains(province)) {
-            province.changeDevelopment(CAPTURE_DEVELOPMENT_PENALTY);
-            provinces.add(province);
+            // an owner still holding it gives it up before the penalty, so it loses what it counted
+            Nation holder = province.getOwner();
+            if (holder != null && holder != this) holder.removeProvince(province);
+            province.adjustDevelopment(CAPTURE_DEVELOPMENT_PENALTY);
+            provinces.insert(province);
+            totalDevelopment += province.getDevelopment();
         }
     }
 
     public void addProvinceToNationOnSetup(Province province) {
-        if (province != null && !provinces.contains(province)) {
-            provinces.add(province);
-        }
+        if (province != null && provinces.insert(province))
+            totalDevelopment += province.getDevelopment();
+    }
+
+    // checkpoint loading: the province list is rebuilt in its saved order, ownership is already set
+    void restoreProvince(Province province) {
+        provinces.insert(province);
+        totalDevelopment += province.getDevelopment();
     }
 
     public void removeProvince(Province province) {
-        provinces.remove(province);
+        if (provinces.delete(province))
+            totalDevelopment -= province.getDevelopment();
+    }
+
+    // the province on the given cell as this nation holds it, removed from its provinces
+    private Province releaseProvince(long cell) {
+        Province province = provinces.take(cell);
+        if (province != null)
+            totalDevelopment -= province.getDevelopment();
+        return province;
+    }
+
+    /**
+     * Give out development points, each to a uniformly random province, drawing from this nation's
+     * stream. All points are drawn first into per-province counts (a multinomial sample) and then
+     * applied in one pass in province order, so a province drawn several times is updated once and
+     * memory is walked sequentially instead of at random.
+     */
+    public void distributeDevelopment(int points, int amountPerPoint) {
+        int size = provinces.size();
+        if (size == 0 || points <= 0) return;
+        if (developmentHits.length < size) developmentHits = new byte[Math.max(size, developmentHits.length * 2)];
+        byte[] hits = developmentHits;
+        for (int i = 0; i < points; i++) {
+            int position = random.nextInt(size);
+            // development is capped far below this, so further hits would change nothing
+            if (hits[position] != Byte.MAX_VALUE) hits[position]++;
+        }
+        for (int position = 0; position < size; position++) {
+            if (hits[position] == 0) continue;
+            provinces.get(position).changeDevelopment(hits[position] * amountPerPoint);
+            hits[position] = 0;
+        }
     }
 
     public int getTotalDevelopment() {
-        int sum = 0;
-        for (Province province : provinces)
-            sum += province.getDevelopment();
-        return sum;
+        return totalDevelopment;
+    }
+
+    /**
+     * Number of tile sides shared with tiles this nation does not own, map edges excluded.
+     */
+    public int getBorderLength() {
+        return borderLength;
     }
 
     public int armyCap() {
-        return Math.max(MINIMUM_ARMY_SIZE, ARMY_CAP_MODIFIER * getTotalDevelopment());
+        return Math.max(MINIMUM_ARMY_SIZE, ARMY_CAP_MODIFIER * totalDevelopment);
     }
 
-    public void growArmy() {
-        int growth = getTotalDevelopment();
-        if (growth <= 0)
+    // called by Province when the development of a tile owned by this nation changes
+    void developmentChanged(int delta) {
+        totalDevelopment += delta;
+    }
+
+    // called by Map when a tile side starts or stops separating this nation from another owner
+    void borderChanged(int delta) {
+        borderLength += delta;
+    }
+
+    /**
+     * Recount every aggregate from scratch and compare with the incrementally maintained values.
+     * Throws IllegalStateException describing the first mismatch.
+     */
+    public void verifyAggregates(Map map) {
+        int development = 0;
+        for (Province province : provinces)
+            development += province.getDevelopment();
+        if (development != totalDevelopment)
+            throw new IllegalStateException(name + ": total development " + totalDevelopment + " but recount is " + development);
+        if (map == null)
             return;
-        int cap = armyCap();
-        int newArmy = army + (growth * ARMY_GROWTH_MODIFIER);
-        army = Math.min(newArmy, cap);
+        int border = map.countBorderLength(this);
+        if (border != borderLength)
+            throw new IllegalStateException(name + ": border length " + borderLength + " but recount is " + border);
+    }
+
+    public void growArmy() {
+        army = grownArmy(army, getTotalDevelopment());
+    }
+
+    // the game rules as plain functions, shared with GameFork so simulated turns play out the same
+
+    static int grownArmy(int army, int totalDevelopment) {
+        if (totalDevelopment <= 0)
+            return army;
+        int cap = Math.max(MINIMUM_ARMY_SIZE, ARMY_CAP_MODIFIER * totalDevelopment);
+        int newArmy = army + (totalDevelopment * ARMY_GROWTH_MODIFIER);
+        return Math.min(newArmy, cap);
+    }
+
+    static int capturedDevelopment(int development) {
+        return Province.boundedDevelopment(development + CAPTURE_DEVELOPMENT_PENALTY);
+    }
+
+    static int attackerArmyAfterBattle(int army) {
+        return army / ARMY_LOSS_FACTOR;
+    }
+
+    static int defenderArmyAfterBattle(int army) {
+        return Math.max(MINIMUM_ARMY_SIZE, army / ARMY_LOSS_FACTOR);
     }
 
     /**
      * Called each turn: strategy acts, then grow army.
      */
     public void takeTurn(Universalis game) {
+        chooseStrategy(game);
+        if (strategy != null)
+            strategy.execute(this, game);
+        growArmy();
+    }
+
+    /**
+     * Simultaneous turns: pick the strategy as takeTurn does and let it declare a move, changing
+     * nothing but the strategy. Returns null when there is nothing to do.
+     */
+    public Order declareTurn(Universalis game) {
+        chooseStrategy(game);
+        return strategy == null ? null : strategy.declare(this, game);
+    }
+
+    private void chooseStrategy(Universalis game) {
+        if (strategy != null && strategy.isSelfDirected())
+            return;
+
         int totalDev = getTotalDevelopment();
         int cap = armyCap();
         boolean lowArmy = cap == 0 || ((double) army < 0.2 * cap);
 
         // low army or no development -> defensive strategy
         if (lowArmy || totalDev == 0) {
-            setStrategy(new DefensiveStrategy());
+            setStrategy(DEFENSIVE);
         }
 
         // not low army -> expand into empty provinces
-        List<int[]> emptyFrontier = collectEmptyFrontier(game);
-        if (!emptyFrontier.isEmpty()) {
-            setStrategy(new OffensiveStrategy());
+        if (!frontier.getEmptyCells().isEmpty()) {
+            setStrategy(OFFENSIVE);
         }
 
         // no empty frontier -> opportunistic check for weaker neighboring nations
         Nation weakerNeighbor = findAdjacentWeakerNation(game);
         if (weakerNeighbor != null) {
-            setStrategy(new OffensiveStrategy());
+            setStrategy(OFFENSIVE);
         }
-
-        if (strategy != null)
-            strategy.execute(this, game);
-        growArmy();
-    }
-
-    /**
-     * Collect a list of empty frontier coordinates adjacent to ANY province owned
-     * by this nation.
-     */
-    private List<int[]> collectEmptyFrontier(Universalis game) {
-        Map map = game.getMap();
-        List<int[]> frontier = new ArrayList<>();
-        for (int row = 0; row < map.getHeight(); row++) {
-            for (int col = 0; col < map.getWidth(); col++) {
-                Province province = map.getProvince(col, row);
-                if (province.getOwner() == this) {
-                    for (int[] directions : Universalis.DIRECTIONS) {
-                        int neighborX = col + directions[X];
-                        int neighborY = row + directions[Y];
-                        if (map.checkBounds(neighborX, neighborY))
-                            continue;
-                        Province neighbor = map.getProvince(neighborX, neighborY);
-                        if (neighbor.getOwner() == null) {
-                            boolean duplicate = false;
-                            for (int[] check : frontier)
-                                if (check[X] == neighborX && check[Y] == neighborY) {
-                                    duplicate = true;
-                                    break;
-                                }
-                            if (!duplicate)
-                                frontier.add(new int[] { neighborX, neighborY });
-                        }
-                    }
-                }
-            }
-        }
-        return frontier;
     }
 
     /**
@@ -160,24 +324,11 @@ public class Nation {
      */
     private Nation findAdjacentWeakerNation(Universalis game) {
         Map map = game.getMap();
-        for (int row = 0; row < map.getHeight(); row++) {
-            for (int col = 0; col < map.getWidth(); col++) {
-                Province province = map.getProvince(col, row);
-                if (province.getOwner() == this) {
-                    for (int[] directions : Universalis.DIRECTIONS) {
-                        int neighborX = col + directions[X];
-                        int neighborY = row + directions[Y];
-                        if (map.checkBounds(neighborX, neighborY))
-                            continue;
-                        Province neighbor = map.getProvince(neighborX, neighborY);
-                        Nation defender = neighbor.getOwner();
-                        if (defender != null && defender != this) {
-                            if (this.army > defender.getArmy())
-                                return defender;
-                        }
-                    }
-                }
-            }
+        LongIndexSet enemyCells = frontier.getEnemyCells();
+        for (int i = 0; i < enemyCells.size(); i++) {
+            Nation defender = map.getOwner(enemyCells.get(i));
+            if (defender != null && defender != this && this.army > defender.getArmy())
+                return defender;
         }
         return null;
     }
@@ -194,86 +345,102 @@ public class Nation {
      */
     public void expandOrAttack(Universalis game, Random rng) {
         Map map = game.getMap();
-        List<int[]> emptyFrontiers = new ArrayList<>();
-        List<int[][]> captureCandidates = new ArrayList<>();
-
-        collectTargets(map, emptyFrontiers, captureCandidates);
+        LongIndexSet emptyCells = frontier.getEmptyCells();
+        LongIndexSet enemyCells = frontier.getEnemyCells();
 
         // Prefer expansion
-        if (!emptyFrontiers.isEmpty()) {
-            expand(map, emptyFrontiers, rng);
+        if (!emptyCells.isEmpty()) {
+            expand(map, emptyCells, rng);
             return;
         }
 
         // Attempt capture
-        if (!captureCandidates.isEmpty()) {
-            attack(map, captureCandidates, rng);
+        if (!enemyCells.isEmpty()) {
+            attack(map, enemyCells, rng);
         }
     }
 
-    private void collectTargets(Map map, List<int[]> emptyFrontiers, List<int[][]> captureCandidates) {
-        for (int row = 0; row < map.getHeight(); row++) {
-            for (int col = 0; col < map.getWidth(); col++) {
-                Province province = map.getProvince(col, row);
-                if (province.getOwner() == this) {
-                    checkNeighbors(map, col, row, emptyFrontiers, captureCandidates);
-                }
-            }
-        }
+    /**
+     * The move expandOrAttack would make, drawing the same numbers, as an order for a simultaneous
+     * turn. Null when the frontier is empty.
+     */
+    public Order declareExpandOrAttack(Random rng) {
+        LongIndexSet emptyCells = frontier.getEmptyCells();
+        if (!emptyCells.isEmpty())
+            return Order.expand(this, emptyCells.get(rng.nextInt(emptyCells.size())));
+        LongIndexSet enemyCells = frontier.getEnemyCells();
+        if (!enemyCells.isEmpty())
+            return Order.attack(this, enemyCells.get(rng.nextInt(enemyCells.size())));
+        return null;
     }
 
-    private void checkNeighbors(Map map, int col, int row, List<int[]> emptyFrontiers,
-            List<int[][]> captureCandidates) {
-        for (int[] directions : Universalis.DIRECTIONS) {
-            int neighborX = col + directions[X];
-            int neighborY = row + directions[Y];
-            if (map.checkBounds(neighborX, neighborY))
-                continue;
-            Province neighbor = map.getProvince(neighborX, neighborY);
-            if (neighbor.getOwner() == null) {
-                emptyFrontiers.add(new int[] { neighborX, neighborY });
-            } else if (neighbor.getOwner() != this) {
-                captureCandidates.add(new int[][] { { col, row }, { neighborX, neighborY } });
-            }
+    /**
+     * Simultaneous turns: carry out a tile move that won its tile. The target is claimed if it has
+     * no owner and fought over with the usual battle rules otherwise, using the armies as they are
+     * now rather than as declared.
+     */
+    public void carryOut(Order order, Map map) {
+        if (order == null || order.getNation() != this)
+            throw new IllegalArgumentException("order of this nation required");
+        if (!order.targetsTile())
+            throw new IllegalArgumentException("only tile moves are carried out: " + order);
+        long cell = order.getCell();
+        Nation defender = map.getOwner(cell);
+        if (defender == null) {
+            claim(map.getProvince(cell));
+        } else if (defender != this) {
+            resolveBattle(map, cell, defender);
         }
     }
 
-    private void expand(Map map, List<int[]> emptyFrontiers, Random rng) {
-        int[] pick = emptyFrontiers.get(rng.nextInt(emptyFrontiers.size()));
-        Province neighborProvince = map.getProvince(pick[X], pick[Y]);
-        neighborProvince.setOwner(this);
-        captureProvince(neighborProvince);
+    private void expand(Map map, LongIndexSet emptyCells, Random rng) {
+        long pick = emptyCells.get(rng.nextInt(emptyCells.size()));
+        claim(map.getProvince(pick));
     }
 
-    private void attack(Map map, List<int[][]> captureCandidates, Random rng) {
-        int idx = rng.nextInt(captureCandidates.size());
-        int[][] chosen = captureCandidates.get(idx);
-        int targetX = chosen[TARGET_INDEX][X];
-        int targetY = chosen[TARGET_INDEX][Y];
-        Province target = map.getProvince(targetX, targetY);
-        Nation defender = target.getOwner();
+    private void attack(Map map, LongIndexSet enemyCells, Random rng) {
+        long chosen = enemyCells.get(rng.nextInt(enemyCells.size()));
+        Nation defender = map.getOwner(chosen);
 
         if (defender == null) {
             // fallback to claiming if owner null
-            target.setOwner(this);
-            captureProvince(target);
+            claim(map.getProvince(chosen));
             return;
         }
 
-        resolveBattle(target, defender);
+        resolveBattle(map, chosen, defender);
     }
 
-    private void resolveBattle(Province target, Nation defender) {
+    private void claim(Province target) {
+        target.setOwner(this);
+        captureProvince(target);
+        if (countMoves)
+            expansions++;
+    }
+
+    // battles go by cell, so on primitive and sparse maps a lost battle materializes no Province
+    // view and a won one moves the defender's own view over to this nation
+    private void resolveBattle(Map map, long cell, Nation defender) {
         int attackerArmy = this.getArmy();
         int defenderArmy = defender.getArmy();
+        if (countMoves) {
+            battles++;
+            if (attackerArmy > defenderArmy)
+                captures++;
+            else if (attackerArmy == defenderArmy)
+                ties++;
+        }
 
         if (attackerArmy > defenderArmy) { // attacker wins
+            // release before the owner changes so the capture penalty is only credited to the attacker
+            Province target = defender.releaseProvince(cell);
+            if (target == null)
+                target = map.getProvince(cell);
             target.setOwner(this);
             captureProvince(target);
-            defender.removeProvince(target);
         }
 
-        this.army = this.army / ARMY_LOSS_FACTOR;
-        defender.setArmy(defender.getArmy() / ARMY_LOSS_FACTOR);
+        this.army = attackerArmyAfterBattle(this.army);
+        defender.army = defenderArmyAfterBattle(defender.army);
     }
 }
\ No newline at end of file
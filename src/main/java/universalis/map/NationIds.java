@@ -0,0 +1,54 @@
+package universalis.map;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short ids for the nations owning cells in a compact grid; id 0 is reserved for unowned cells.
+ * Lookups take no lock, so parallel turns writing owners do not queue on one monitor: nation
+ * reads a volatile array that is republished whenever an id is added, and idOf reads the id the
+ * nation keeps for the grid it was last looked up in. Only handing out an id, or looking up a
+ * nation last seen by another grid, locks.
+ */
+class NationIds {
+    static final short NO_OWNER = 0;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long ID_MASK = 0xFFFF;
+    // tags the ids kept in Nation.compactId with the NationIds that handed them out
+    private static final AtomicLong TAGS = new AtomicLong();
+
+    private final long tag = TAGS.incrementAndGet() << 16;
+    private volatile Nation[] nationsById = new Nation[INITIAL_CAPACITY];
+    // guarded by this
+    private int size = 1;
+    private final java.util.Map<Nation, Short> idsByNation = new IdentityHashMap<>();
+
+    Nation nation(short id) {
+        return nationsById[id];
+    }
+
+    // ids are handed out the first time a nation owns a tile, normally while seeding
+    short idOf(Nation nation) {
+        if (nation == null) return NO_OWNER;
+        long cached = nation.compactId;
+        if ((cached & ~ID_MASK) == tag) return (short) (cached & ID_MASK);
+        return assignId(nation);
+    }
+
+    private synchronized short assignId(Nation nation) {
+        Short id = idsByNation.get(nation);
+        if (id == null) {
+            if (size > Short.MAX_VALUE) throw new IllegalStateException("too many nations for compact storage");
+            id = (short) size;
+            Nation[] table = nationsById;
+            if (size == table.length) table = Arrays.copyOf(table, Math.min(table.length * 2, Short.MAX_VALUE + 1));
+            table[size++] = nation;
+            // written again even when unchanged, so readers that see the new id also see the nation
+            nationsById = table;
+            idsByNation.put(nation, id);
+        }
+        nation.compactId = tag | id;
+        return id;
+    }
+}
@@ -0,0 +1,48 @@
+package universalis.map;
+
+/**
+ * Default backend: one Province object per tile.
+ */
+class ObjectGrid implements ProvinceGrid {
+    private final Map map;
+    private final Province[][] provinces;
+
+    ObjectGrid(Map map, int width, int height) {
+        this.map = map;
+        this.provinces = new Province[height][width];
+    }
+
+    @Override public int width() { return provinces[0].length; }
+    @Override public int height() { return provinces.length; }
+
+    @Override
+    public Province get(int x, int y) { return provinces[y][x]; }
+
+    @Override
+    public void set(int x, int y, Province province) {
+        Province previous = provinces[y][x];
+        if (previous != null) previous.place(null, -1, null);
+        provinces[y][x] = province;
+        if (province != null) province.place(map, map.cellOf(x, y), null);
+    }
+
+    @Override
+    public Nation ownerAt(int x, int y) {
+        Province province = provinces[y][x];
+        return province == null ? null : province.getOwner();
+    }
+
+    @Override
+    public void restore(int x, int y, int development, Nation owner) {
+        Province province = new Province(development);
+        // not placed yet, so this does not reach the map
+        province.setOwner(owner);
+        set(x, y, province);
+    }
+
+    @Override
+    public int developmentAt(int x, int y) {
+        Province province = provinces[y][x];
+        return province == null ? 0 : province.getDevelopment();
+    }
+}
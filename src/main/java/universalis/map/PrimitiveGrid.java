@@ -0,0 +1,75 @@
+package universalis.map;
+
+/**
+ * Struct-of-arrays backend: development and owner id live in flat arrays indexed by cell id,
+ * three bytes per tile. Provinces handed out by get are lightweight views over a cell.
+ */
+class PrimitiveGrid implements ProvinceGrid, CellStore {
+    private final Map map;
+    private final int width;
+    private final int height;
+    private final byte[] development;
+    private final short[] owners;
+    private final NationIds ids = new NationIds();
+
+    PrimitiveGrid(Map map, int width, int height) {
+        long cells = (long) width * height;
+        if (cells > Integer.MAX_VALUE) throw new IllegalArgumentException("map too large for primitive storage");
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.development = new byte[(int) cells];
+        this.owners = new short[(int) cells];
+    }
+
+    @Override public int width() { return width; }
+    @Override public int height() { return height; }
+
+    @Override
+    public Province get(int x, int y) {
+        Province view = new Province(0);
+        view.place(map, map.cellOf(x, y), this);
+        return view;
+    }
+
+    @Override
+    public void set(int x, int y, Province province) {
+        if (province == null) throw new IllegalArgumentException("primitive storage cannot hold a null province");
+        long cell = map.cellOf(x, y);
+        setDevelopment(cell, province.getDevelopment());
+        setOwner(cell, province.getOwner());
+        province.place(map, cell, this);
+    }
+
+    @Override
+    public Nation ownerAt(int x, int y) {
+        return ids.nation(owners[y * width + x]);
+    }
+
+    @Override
+    public int developmentAt(int x, int y) {
+        return development[y * width + x];
+    }
+
+    @Override
+    public void restore(int x, int y, int development, Nation owner) {
+        long cell = map.cellOf(x, y);
+        setDevelopment(cell, development);
+        setOwner(cell, owner);
+    }
+
+    @Override
+    public int development(long cell) { return development[(int) cell]; }
+
+    @Override
+    public void setDevelopment(long cell, int value) {
+        if (value < 0 || value > Byte.MAX_VALUE) throw new IllegalArgumentException("development out of range: " + value);
+        development[(int) cell] = (byte) value;
+    }
+
+    @Override
+    public Nation owner(long cell) { return ids.nation(owners[(int) cell]); }
+
+    @Override
+    public void setOwner(long cell, Nation owner) { owners[(int) cell] = ids.idOf(owner); }
+}
@@ -1,9 +1,11 @@
 package universalis.map;
 
+import universalis.random.SplitMixRandom;
+
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Province {
-    private static final Random random = new Random();
 
     private static final int MIN_DEV = 0;
     private static final int MAX_DEV = 25;
@@ -12,8 +14,15 @@ public class Province {
     private int development;
     private Nation owner;
 
+    // placement on a Map, set by the Map itself; cell is -1 while unplaced
+    private Map map;
+    private long cell = -1;
+    // when set, development and owner live in a primitive or sparse grid instead of the fields above
+    private CellStore backing;
+
     public Province() {
-        this.development = MIN_DEV + random.nextInt(MAX_STARTING_DEV);
+        // unseeded convenience path; Map.Builder passes its own stream for reproducible maps
+        this.development = startingDevelopment(ThreadLocalRandom.current());
         this.owner = null;
     }
 
@@ -22,22 +31,89 @@ public class Province {
         this.owner = null;
     }
 
-    public int getDevelopment() { return development; }
-    public Nation getOwner() { return owner; }
+    public static int startingDevelopment(Random random) {
+        return MIN_DEV + random.nextInt(MAX_STARTING_DEV);
+    }
+
+    /**
+     * Starting development as a pure function of a map seed and a cell, for maps that work out
+     * untouched tiles on demand instead of storing them.
+     */
+    public static int startingDevelopment(long seed, long cell) {
+        long bits = SplitMixRandom.mix64(seed + cell * 0x9E3779B97F4A7C15L) >>> 1;
+        return MIN_DEV + (int) (bits % MAX_STARTING_DEV);
+    }
+
+    public int getDevelopment() { return backing == null ? development : backing.development(cell); }
+    public Nation getOwner() { return backing == null ? owner : backing.owner(cell); }
+    public long getCell() { return cell; }
 
-    public void setOwner(Nation owner) { this.owner = owner; }
+    public void setOwner(Nation owner) {
+        Nation previous = getOwner();
+        // the previous owner lets go of it here, whatever order the caller updates the nations in
+        if (previous != null && previous != owner) previous.removeProvince(this);
+        if (backing == null)
+            this.owner = owner;
+        else
+            backing.setOwner(cell, owner);
+        if (map != null && previous != owner) map.ownerChanged(cell, previous, owner);
+    }
 
+    void place(Map map, long cell, CellStore backing) {
+        this.map = map;
+        this.cell = cell;
+        this.backing = backing;
+    }
+
+    /**
+     * Apply a bounded development change and credit the difference to the owner's aggregates.
+     */
     public void changeDevelopment(int value) {
-        if (this.development + value < MIN_DEV) { // if development dips below minimum reset
-            this.development = MIN_DEV;
-        } else {
-            this.development = Math.min(MAX_DEV, this.development + value); // max or increase
+        int delta = adjustDevelopment(value);
+        Nation currentOwner = getOwner();
+        if (delta != 0 && currentOwner != null) currentOwner.developmentChanged(delta);
+    }
+
+    // bounded change without notifying the owner; returns the change actually applied
+    int adjustDevelopment(int value) {
+        int current = getDevelopment();
+        int updated = boundedDevelopment(current + value);
+        if (backing == null)
+            this.development = updated;
+        else
+            backing.setDevelopment(cell, updated);
+        if (map != null && updated != current) map.markChanged(cell);
+        return updated - current;
+    }
+
+    // development clamped to the allowed range; shared with GameFork so simulations follow the same rules
+    static int boundedDevelopment(int development) {
+        if (development < MIN_DEV) { // if development dips below minimum reset
+            return MIN_DEV;
         }
+        return Math.min(MAX_DEV, development); // max or increase
+    }
+
+    /**
+     * Provinces backed by a primitive or sparse grid are views, so two views of the same cell are equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (backing == null || !(other instanceof Province)) return false;
+        Province province = (Province) other;
+        return province.backing == backing && province.cell == cell;
+    }
+
+    @Override
+    public int hashCode() {
+        return backing == null ? System.identityHashCode(this) : Long.hashCode(cell);
     }
 
     @Override
     public String toString() {
-        String ownerName = owner == null ? "." : owner.getName();
-        return String.format("%d:%s", development, ownerName);
+        Nation currentOwner = getOwner();
+        String ownerName = currentOwner == null ? "." : currentOwner.getName();
+        return String.format("%d:%s", getDevelopment(), ownerName);
     }
 }
@@ -0,0 +1,26 @@
+package universalis.map;
+
+/**
+ * Storage backend behind a Map. Cells are addressed by x/y; owner lookups go through
+ * ownerAt so neighbor scans never have to materialize a Province.
+ */
+interface ProvinceGrid {
+    int width();
+    int height();
+
+    Province get(int x, int y);
+
+    /**
+     * Store the province at x/y and bind it to the grid so later changes go to this cell.
+     */
+    void set(int x, int y, Province province);
+
+    Nation ownerAt(int x, int y);
+
+    int developmentAt(int x, int y);
+
+    /**
+     * Raw write used when loading a checkpoint: no frontier, aggregate or change notifications.
+     */
+    void restore(int x, int y, int development, Nation owner);
+}
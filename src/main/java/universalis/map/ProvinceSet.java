@@ -0,0 +1,102 @@
+package universalis.map;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.RandomAccess;
+
+/**
+ * The provinces of a nation, keyed by their cell id: O(1) add, remove, contains and positional
+ * access, so a uniform random pick is get(rng.nextInt(size())). Read-only through the List
+ * interface; Nation changes it through insert and delete. Like LongIndexSet, removal moves the
+ * last province into the freed position.
+ */
+class ProvinceSet extends AbstractList<Province> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Province[] items = new Province[INITIAL_CAPACITY];
+    // same keys in the same positions as items
+    private final LongIndexSet keys = new LongIndexSet();
+    // provinces not placed on a map have no cell; they get keys below -1, tracked by identity
+    private IdentityHashMap<Province, Long> detached;
+    private long nextDetachedKey = -2;
+
+    @Override
+    public Province get(int position) {
+        if (position < 0 || position >= keys.size()) throw new IndexOutOfBoundsException("position " + position);
+        return items[position];
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(object) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof Province province)) return -1;
+        long key = keyOf(province);
+        return key == -1 ? -1 : keys.indexOf(key);
+    }
+
+    @Override
+    public int lastIndexOf(Object object) {
+        return indexOf(object);
+    }
+
+    void ensureCapacity(int capacity) {
+        keys.ensureCapacity(capacity);
+        if (capacity > items.length) items = Arrays.copyOf(items, capacity);
+    }
+
+    boolean insert(Province province) {
+        long key = province.getCell();
+        if (key < 0) {
+            if (detached == null) detached = new IdentityHashMap<>();
+            if (detached.containsKey(province)) return false;
+            key = nextDetachedKey--;
+            detached.put(province, key);
+        }
+        if (!keys.add(key)) return false;
+        if (keys.size() > items.length) items = Arrays.copyOf(items, items.length * 2);
+        items[keys.size() - 1] = province;
+        return true;
+    }
+
+    boolean delete(Province province) {
+        long key = keyOf(province);
+        int position = key == -1 ? -1 : keys.indexOf(key);
+        if (position < 0) return false;
+        keys.remove(key);
+        if (key < -1) detached.remove(province);
+        int last = keys.size();
+        items[position] = items[last];
+        items[last] = null;
+        return true;
+    }
+
+    // the province placed on the given cell, removed; null when this set does not hold it
+    Province take(long cell) {
+        int position = cell < 0 ? -1 : keys.indexOf(cell);
+        if (position < 0) return null;
+        Province province = items[position];
+        keys.remove(cell);
+        int last = keys.size();
+        items[position] = items[last];
+        items[last] = null;
+        return province;
+    }
+
+    // -1 when the province is neither on a map nor in this set
+    private long keyOf(Province province) {
+        long cell = province.getCell();
+        if (cell >= 0) return cell;
+        Long key = detached == null ? null : detached.get(province);
+        return key == null ? -1 : key;
+    }
+}
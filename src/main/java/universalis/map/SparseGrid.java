@@ -0,0 +1,199 @@
+package universalis.map;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Backend for worlds too large to store: the map is cut into 64x64 chunks and a chunk only
+ * exists once one of its cells is owned or its development moves away from the starting value.
+ * Starting development is worked out from the map seed and the cell, so untouched chunks need no
+ * memory at all apart from one directory slot. Chunks whose cells are all back to their starting
+ * state are freed by releaseEmptyChunks, which Map.trimStorage calls between turns.
+ */
+class SparseGrid implements ProvinceGrid, CellStore {
+    static final int CHUNK_SHIFT = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    private final Map map;
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int chunksPerRow;
+    // created with compareAndSet so nations taking turns in parallel can touch new chunks
+    private final AtomicReferenceArray<Chunk> chunks;
+    private final NationIds ids = new NationIds();
+    // chunks that went back to their starting state, checked again by releaseEmptyChunks
+    private final Queue<Chunk> emptied = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    private static final class Chunk {
+        final int index;
+        final byte[] development = new byte[CHUNK_CELLS];
+        final short[] owners = new short[CHUNK_CELLS];
+        // cells that are owned or whose development differs from the starting value
+        final AtomicInteger modified = new AtomicInteger();
+
+        Chunk(int index) {
+            this.index = index;
+        }
+    }
+
+    SparseGrid(Map map, int width, int height, long seed) {
+        long chunkCount = (long) chunksAlong(width) * chunksAlong(height);
+        if (chunkCount > Integer.MAX_VALUE) throw new IllegalArgumentException("map too large for sparse storage");
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.chunksPerRow = chunksAlong(width);
+        this.chunks = new AtomicReferenceArray<>((int) chunkCount);
+    }
+
+    private static int chunksAlong(int cells) {
+        return (cells + CHUNK_MASK) >>> CHUNK_SHIFT;
+    }
+
+    long seed() { return seed; }
+
+    int allocatedChunks() { return allocated.get(); }
+
+    @Override public int width() { return width; }
+    @Override public int height() { return height; }
+
+    @Override
+    public Province get(int x, int y) {
+        Province view = new Province(0);
+        view.place(map, map.cellOf(x, y), this);
+        return view;
+    }
+
+    @Override
+    public void set(int x, int y, Province province) {
+        if (province == null) throw new IllegalArgumentException("sparse storage cannot hold a null province");
+        write(x, y, province.getDevelopment(), ids.idOf(province.getOwner()));
+        province.place(map, map.cellOf(x, y), this);
+    }
+
+    @Override
+    public Nation ownerAt(int x, int y) {
+        Chunk chunk = chunks.get(chunkIndex(x, y));
+        return chunk == null ? null : ids.nation(chunk.owners[offset(x, y)]);
+    }
+
+    @Override
+    public int developmentAt(int x, int y) {
+        Chunk chunk = chunks.get(chunkIndex(x, y));
+        return chunk == null ? startingDevelopment(x, y) : chunk.development[offset(x, y)];
+    }
+
+    @Override
+    public void restore(int x, int y, int development, Nation owner) {
+        write(x, y, development, ids.idOf(owner));
+    }
+
+    @Override
+    public int development(long cell) { return developmentAt(map.xOf(cell), map.yOf(cell)); }
+
+    @Override
+    public void setDevelopment(long cell, int value) {
+        int x = map.xOf(cell);
+        int y = map.yOf(cell);
+        Chunk chunk = chunks.get(chunkIndex(x, y));
+        write(x, y, value, chunk == null ? NationIds.NO_OWNER : chunk.owners[offset(x, y)]);
+    }
+
+    @Override
+    public Nation owner(long cell) { return ownerAt(map.xOf(cell), map.yOf(cell)); }
+
+    @Override
+    public void setOwner(long cell, Nation owner) {
+        int x = map.xOf(cell);
+        int y = map.yOf(cell);
+        write(x, y, developmentAt(x, y), ids.idOf(owner));
+    }
+
+    /**
+     * Free the chunks that went back to their starting state. Must not run while turns are in
+     * progress, since a write to a chunk being freed would be lost.
+     */
+    void releaseEmptyChunks() {
+        Chunk chunk;
+        while ((chunk = emptied.poll()) != null) {
+            if (chunk.modified.get() == 0 && chunks.compareAndSet(chunk.index, chunk, null))
+                allocated.decrementAndGet();
+        }
+    }
+
+    private void write(int x, int y, int development, short owner) {
+        if (development < 0 || development > Byte.MAX_VALUE) throw new IllegalArgumentException("development out of range: " + development);
+        int starting = startingDevelopment(x, y);
+        boolean modified = owner != NationIds.NO_OWNER || development != starting;
+        int index = chunkIndex(x, y);
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            if (!modified) return;
+            chunk = allocate(index);
+        }
+        int offset = offset(x, y);
+        boolean wasModified = chunk.owners[offset] != NationIds.NO_OWNER || chunk.development[offset] != starting;
+        chunk.development[offset] = (byte) development;
+        chunk.owners[offset] = owner;
+        if (modified && !wasModified) {
+            chunk.modified.incrementAndGet();
+        } else if (!modified && wasModified && chunk.modified.decrementAndGet() == 0) {
+            emptied.add(chunk);
+        }
+    }
+
+    private Chunk allocate(int index) {
+        Chunk chunk = new Chunk(index);
+        int firstX = chunkX(index);
+        int firstY = chunkY(index);
+        for (int dy = 0; dy < CHUNK_SIZE && firstY + dy < height; dy++)
+            for (int dx = 0; dx < CHUNK_SIZE && firstX + dx < width; dx++)
+                chunk.development[dy << CHUNK_SHIFT | dx] = (byte) startingDevelopment(firstX + dx, firstY + dy);
+        if (chunks.compareAndSet(index, null, chunk)) {
+            allocated.incrementAndGet();
+            return chunk;
+        }
+        return chunks.get(index);
+    }
+
+    private int startingDevelopment(int x, int y) {
+        return Province.startingDevelopment(seed, map.cellOf(x, y));
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y >>> CHUNK_SHIFT) * chunksPerRow + (x >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int x, int y) {
+        return (y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK);
+    }
+
+    /**
+     * Indexes of the chunks holding changed cells, in ascending order.
+     */
+    int[] changedChunks() {
+        int[] found = new int[allocated.get()];
+        int count = 0;
+        for (int index = 0; index < chunks.length(); index++) {
+            Chunk chunk = chunks.get(index);
+            if (chunk == null || chunk.modified.get() == 0) continue;
+            if (count == found.length) found = Arrays.copyOf(found, count * 2 + 1);
+            found[count++] = index;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    int chunkCount() { return chunks.length(); }
+
+    // top left corner of a chunk
+    int chunkX(int index) { return (index % chunksPerRow) << CHUNK_SHIFT; }
+    int chunkY(int index) { return (index / chunksPerRow) << CHUNK_SHIFT; }
+}
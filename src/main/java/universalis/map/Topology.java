@@ -0,0 +1,81 @@
+package universalis.map;
+
+/**
+ * How tiles connect to each other. Neighbors of a cell come in a fixed order, so seeded games
+ * stay reproducible; Map turns this into an adjacency table when it builds.
+ * <p>
+ * SQUARE is the classic four sides, SQUARE_8 adds the diagonals, HEX uses offset rows where odd
+ * rows are shifted half a tile right, and TORUS is SQUARE with opposite edges joined.
+ */
+public enum Topology {
+    SQUARE(new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }, null, false),
+    SQUARE_8(new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { -1, 1 }, { 1, -1 }, { -1, -1 } }, null, false),
+    HEX(new int[][] { { 1, 0 }, { -1, 0 }, { 0, -1 }, { -1, -1 }, { 0, 1 }, { -1, 1 } },
+            new int[][] { { 1, 0 }, { -1, 0 }, { 1, -1 }, { 0, -1 }, { 1, 1 }, { 0, 1 } }, false),
+    TORUS(new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }, null, true);
+
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final long NONE = -1;
+
+    private final int[][] evenRows;
+    private final int[][] oddRows;
+    private final boolean wraps;
+
+    Topology(int[][] evenRows, int[][] oddRows, boolean wraps) {
+        this.evenRows = evenRows;
+        this.oddRows = oddRows == null ? evenRows : oddRows;
+        this.wraps = wraps;
+    }
+
+    /**
+     * Most neighbors any cell can have.
+     */
+    public int maxDegree() {
+        return evenRows.length;
+    }
+
+    /**
+     * Write the neighbors of x/y on a width x height map into out (length >= maxDegree) and return
+     * how many there are.
+     */
+    public int neighbors(int x, int y, int width, int height, long[] out) {
+        int count = 0;
+        for (int direction = 0; direction < maxDegree(); direction++) {
+            long neighbor = step(x, y, direction, width, height);
+            if (neighbor != NONE) out[count++] = neighbor;
+        }
+        return count;
+    }
+
+    int degree(int x, int y, int width, int height) {
+        int count = 0;
+        for (int direction = 0; direction < maxDegree(); direction++)
+            if (step(x, y, direction, width, height) != NONE) count++;
+        return count;
+    }
+
+    // the index-th entry of what neighbors would write
+    long neighbor(int x, int y, int index, int width, int height) {
+        for (int direction = 0; direction < maxDegree(); direction++) {
+            long neighbor = step(x, y, direction, width, height);
+            if (neighbor != NONE && index-- == 0) return neighbor;
+        }
+        throw new IndexOutOfBoundsException("cell has no neighbor " + index);
+    }
+
+    // cell one step away in the given direction, or NONE when that is off the map or x/y itself
+    private long step(int x, int y, int direction, int width, int height) {
+        int[] offset = (y & 1) == 0 ? evenRows[direction] : oddRows[direction];
+        int neighborX = x + offset[X];
+        int neighborY = y + offset[Y];
+        if (wraps) {
+            neighborX = Math.floorMod(neighborX, width);
+            neighborY = Math.floorMod(neighborY, height);
+            if (neighborX == x && neighborY == y) return NONE;
+        } else if (neighborX < 0 || neighborX >= width || neighborY < 0 || neighborY >= height) {
+            return NONE;
+        }
+        return (long) neighborY * width + neighborX;
+    }
+}
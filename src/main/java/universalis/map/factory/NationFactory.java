@@ -18,10 +18,26 @@ public class NationFactory {
             "Protectorate","Domain","March","Principality","Faction"
     );
 
-    private static final Random random = new Random();
-    private static final Set<String> usedNames = new HashSet<>();
+    // shared factory behind the static helpers; games that must be isolated create their own
+    private static final NationFactory shared = new NationFactory(new Random());
+
+    private final Random random;
+    private final Set<String> usedNames = new HashSet<>();
+
+    public NationFactory(Random random) {
+        this.random = random;
+    }
 
     public static Nation createRandomNation() {
+        synchronized (shared) {
+            return shared.createNation();
+        }
+    }
+
+    /**
+     * Creates a nation whose name is unique among the nations made by this factory.
+     */
+    public Nation createNation() {
         if (usedNames.size() >= BASE_NAMES.size() * SUFFIXES.size())
             throw new IllegalStateException("All unique name combinations exhausted");
 
@@ -36,5 +52,9 @@ public class NationFactory {
     }
 
     // test helper
-    public static void clearUsedNamesForTests() { usedNames.clear(); }
+    public static void clearUsedNamesForTests() {
+        synchronized (shared) {
+            shared.usedNames.clear();
+        }
+    }
 }
\ No newline at end of file
@@ -2,8 +2,14 @@ package universalis.map.factory;
 
 import universalis.map.Province;
 
+import java.util.Random;
+
 public class ProvinceFactory {
     public static Province createProvince() {
         return new Province();
     }
-}
\ No newline at end of file
+
+    public static Province createProvince(Random random) {
+        return new Province(Province.startingDevelopment(random));
+    }
+}
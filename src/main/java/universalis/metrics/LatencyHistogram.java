@@ -0,0 +1,77 @@
+package universalis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations in nanoseconds counted in power-of-two buckets: bucket i holds values below 2^i and
+ * at least 2^(i-1), with 0 in bucket 0, so percentiles are exact to within a factor of two. Recording is lock-free and
+ * safe from any number of threads.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        total.add(value);
+        for (long seen = max.get(); value > seen && !max.compareAndSet(seen, value); seen = max.get()) {
+            // another thread raised the maximum meanwhile; try again against its value
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += buckets.get(i);
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given fraction of recorded values, at most the maximum;
+     * 0 when nothing was recorded.
+     */
+    public long percentileNanos(double fraction) {
+        if (fraction < 0 || fraction > 1)
+            throw new IllegalArgumentException("fraction must be between 0 and 1");
+        long recorded = getCount();
+        if (recorded == 0)
+            return 0;
+        long wanted = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= wanted)
+                return Math.min(upperBound(i), getMaxNanos());
+        }
+        return getMaxNanos();
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public PhaseStats snapshot() {
+        return new PhaseStats(getCount(), getTotalNanos(), getMaxNanos(), percentileNanos(0.5), percentileNanos(0.99));
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        total.reset();
+        max.set(0);
+    }
+}
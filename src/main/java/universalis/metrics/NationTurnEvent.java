@@ -0,0 +1,35 @@
+package universalis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One nation's move within a turn. There is one per nation per turn, so it is off by default; enable
+ * universalis.NationTurn in the recording settings to find out which nations are slow.
+ */
+@Name("universalis.NationTurn")
+@Label("Nation Turn")
+@Category("Universalis")
+@Description("The time one nation's strategy took to move")
+@Enabled(false)
+@StackTrace(false)
+class NationTurnEvent extends Event {
+    @Label("Turn")
+    int turn;
+
+    @Label("Nation")
+    String nation;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Strategy Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long strategyTime;
+}
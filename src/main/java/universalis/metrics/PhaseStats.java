@@ -0,0 +1,49 @@
+package universalis.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of one LatencyHistogram as JMX clients see it. Times are in nanoseconds.
+ */
+public final class PhaseStats {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+
+    @ConstructorProperties({"count", "totalNanos", "maxNanos", "p50Nanos", "p99Nanos"})
+    public PhaseStats(long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " total=" + totalNanos + "ns max=" + maxNanos
+                + "ns p50<=" + p50Nanos + "ns p99<=" + p99Nanos + "ns";
+    }
+}
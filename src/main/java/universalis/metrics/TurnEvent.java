@@ -0,0 +1,62 @@
+package universalis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One completed turn cycle, committed at its end with the time of each phase and what the nations
+ * did during it.
+ */
+@Name("universalis.Turn")
+@Label("Turn")
+@Category("Universalis")
+@Description("A completed turn cycle with the time spent in each phase")
+@StackTrace(false)
+class TurnEvent extends Event {
+    @Label("Turn")
+    int turn;
+
+    @Label("Nations")
+    int nations;
+
+    @Label("Turn Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long turnTime;
+
+    @Label("Strategy Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long strategyTime;
+
+    @Label("Elimination Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long eliminationTime;
+
+    @Label("Development Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long developmentTime;
+
+    @Label("Publish Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long publishTime;
+
+    @Label("Sleep Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long sleepTime;
+
+    @Label("Expansions")
+    long expansions;
+
+    @Label("Battles")
+    long battles;
+
+    @Label("Captures")
+    long captures;
+
+    @Label("Ties")
+    long ties;
+}
@@ -0,0 +1,319 @@
+package universalis.metrics;
+
+import universalis.map.Nation;
+import universalis.strategy.Strategy;
+
+import jdk.jfr.EventType;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where a game records how long each part of a turn took and what the nations did. Universalis
+ * times the phases of executeTurnCycle and every nation's move, Nation counts expansions and
+ * battles. Everything is kept in LongAdders and LatencyHistograms, so recording takes no locks and
+ * one TurnMetrics can be shared by games running on different threads.
+ * <p>
+ * The numbers are readable over JMX once registerMBean is called, and every turn is also committed
+ * as a universalis.Turn JFR event, with an optional universalis.NationTurn event per nation move,
+ * so a running game can be watched and profiled from JDK Mission Control.
+ * <p>
+ * Turn times and counts are exact. The phases of a turn and single nation moves are timed on one
+ * turn in sampleInterval, 64 by default, and on every turn while a Turn or NationTurn event is
+ * being recorded, so histograms other than TURN count sampled turns only. A game keeps its turn
+ * times and counts to itself in between and hands them over on sampled turns, every 64 turns and
+ * when runTurns or playToCompletion returns: updating shared counters on every turn cost a few
+ * percent of a small turn. What JMX shows may lag a running game by that much.
+ * <p>
+ * Games record nothing unless given a TurnMetrics through Universalis.setMetrics, or started with
+ * -Duniversalis.metrics=true, which gives every game the shared instance.
+ */
+public class TurnMetrics implements TurnMetricsMXBean {
+    /**
+     * Parts of executeTurnCycle. TURN is the whole cycle, including map housekeeping that belongs
+     * to no other phase; STRATEGY covers all nation moves and the influence map built before them.
+     */
+    public enum Phase { TURN, STRATEGY, ELIMINATION, DEVELOPMENT, PUBLISH, SLEEP }
+
+    private static final String DOMAIN = "universalis";
+    private static final int DEFAULT_SAMPLE_INTERVAL = 64;
+    private static TurnMetrics shared;
+    // looked up once: asking a new event whether it is enabled made two objects every turn
+    private static final EventType TURN_EVENT = EventType.getEventType(TurnEvent.class);
+    private static final EventType NATION_TURN_EVENT = EventType.getEventType(NationTurnEvent.class);
+
+    private final int sampleInterval;
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+    private final ConcurrentHashMap<Class<?>, StrategyTimes> byStrategy = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> byNation = new ConcurrentHashMap<>();
+    private final LongAdder expansions = new LongAdder();
+    private final LongAdder battles = new LongAdder();
+    private final LongAdder captures = new LongAdder();
+    private final LongAdder ties = new LongAdder();
+
+    // counter values at the last TurnEvent, so each event carries what happened during its turn
+    private long lastExpansions, lastBattles, lastCaptures, lastTies;
+    private ObjectName registeredName;
+
+    public TurnMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param sampleInterval time phases and nation moves on every turn divisible by this; 1 times all
+     */
+    public TurnMetrics(int sampleInterval) {
+        if (sampleInterval <= 0)
+            throw new IllegalArgumentException("sampleInterval must be > 0");
+        this.sampleInterval = sampleInterval;
+        for (int i = 0; i < phases.length; i++)
+            phases[i] = new LatencyHistogram();
+    }
+
+    /**
+     * The instance every game records into when -Duniversalis.metrics=true, registered over JMX as
+     * universalis:type=TurnMetrics,name=shared on first use.
+     */
+    public static synchronized TurnMetrics shared() {
+        if (shared == null) {
+            shared = new TurnMetrics();
+            shared.registerMBean("shared");
+        }
+        return shared;
+    }
+
+    /**
+     * Register with the platform MBeanServer as universalis:type=TurnMetrics,name=&lt;name&gt;.
+     *
+     * @throws IllegalStateException if the name is taken or registration fails
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        if (name == null || name.isBlank())
+            throw new IllegalArgumentException("name required");
+        if (registeredName != null)
+            throw new IllegalStateException("already registered as " + registeredName);
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=TurnMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register turn metrics as " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (InstanceNotFoundException e) {
+            // already gone
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister " + registeredName, e);
+        } finally {
+            registeredName = null;
+        }
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * True when the phases and nation moves of the given turn should be timed, the moves passed to
+     * nationTurn and the phases to turnSampled.
+     */
+    public boolean isSampledTurn(int turn) {
+        return turn % sampleInterval == 0 || TURN_EVENT.isEnabled() || NATION_TURN_EVENT.isEnabled();
+    }
+
+    /**
+     * Record one nation's move. The strategy is the one the nation ended its move with, since
+     * takeTurn may switch strategies first.
+     */
+    public void nationTurn(int turn, Nation nation, long nanos) {
+        Strategy strategy = nation.getStrategy();
+        Class<?> type = strategy == null ? Void.class : strategy.getClass();
+        StrategyTimes times = byStrategy.get(type);
+        if (times == null)
+            times = byStrategy.computeIfAbsent(type, key -> new StrategyTimes(String.valueOf(strategy)));
+        times.histogram.record(nanos);
+
+        String name = String.valueOf(nation.getName());
+        LongAdder total = byNation.get(name);
+        if (total == null)
+            total = byNation.computeIfAbsent(name, key -> new LongAdder());
+        total.add(nanos);
+
+        if (NATION_TURN_EVENT.isEnabled()) {
+            NationTurnEvent event = new NationTurnEvent();
+            event.turn = turn;
+            event.nation = name;
+            event.strategy = times.name;
+            event.strategyTime = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record the whole-turn times of turns played, turnNanos[0] to turnNanos[count - 1].
+     */
+    public void turnsCompleted(long[] turnNanos, int count) {
+        LatencyHistogram histogram = phases[Phase.TURN.ordinal()];
+        for (int i = 0; i < count; i++)
+            histogram.record(turnNanos[i]);
+    }
+
+    /**
+     * Record the phases of a sampled turn; phaseNanos holds the time of every Phase, indexed by
+     * ordinal. The TURN time only goes into the JFR event, the histogram gets it from turnsCompleted.
+     */
+    public void turnSampled(int turn, int nations, long[] phaseNanos) {
+        if (phaseNanos.length != phases.length)
+            throw new IllegalArgumentException("one time per phase required");
+        for (int i = 0; i < phases.length; i++)
+            if (i != Phase.TURN.ordinal())
+                phases[i].record(phaseNanos[i]);
+
+        if (TURN_EVENT.isEnabled()) {
+            TurnEvent event = new TurnEvent();
+            event.turn = turn;
+            event.nations = nations;
+            event.turnTime = phaseNanos[Phase.TURN.ordinal()];
+            event.strategyTime = phaseNanos[Phase.STRATEGY.ordinal()];
+            event.eliminationTime = phaseNanos[Phase.ELIMINATION.ordinal()];
+            event.developmentTime = phaseNanos[Phase.DEVELOPMENT.ordinal()];
+            event.publishTime = phaseNanos[Phase.PUBLISH.ordinal()];
+            event.sleepTime = phaseNanos[Phase.SLEEP.ordinal()];
+            // games sharing this instance finish turns concurrently; their counts are mixed anyway
+            synchronized (this) {
+                long expanded = expansions.sum(), fought = battles.sum(), captured = captures.sum(), tied = ties.sum();
+                event.expansions = expanded - lastExpansions;
+                event.battles = fought - lastBattles;
+                event.captures = captured - lastCaptures;
+                event.ties = tied - lastTies;
+                lastExpansions = expanded;
+                lastBattles = fought;
+                lastCaptures = captured;
+                lastTies = tied;
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Add expansions and battles made since the last call; a battle is a capture when the
+     * attacker's army was larger and a tie when the armies were equal.
+     */
+    public void movesMade(long expanded, long fought, long captured, long tied) {
+        expansions.add(expanded);
+        battles.add(fought);
+        captures.add(captured);
+        ties.add(tied);
+    }
+
+    public PhaseStats getPhase(Phase phase) {
+        return phases[phase.ordinal()].snapshot();
+    }
+
+    @Override
+    public long getTurns() {
+        return phases[Phase.TURN.ordinal()].getCount();
+    }
+
+    @Override
+    public PhaseStats getTurnTime() {
+        return getPhase(Phase.TURN);
+    }
+
+    @Override
+    public PhaseStats getStrategyTime() {
+        return getPhase(Phase.STRATEGY);
+    }
+
+    @Override
+    public PhaseStats getEliminationTime() {
+        return getPhase(Phase.ELIMINATION);
+    }
+
+    @Override
+    public PhaseStats getDevelopmentTime() {
+        return getPhase(Phase.DEVELOPMENT);
+    }
+
+    @Override
+    public PhaseStats getPublishTime() {
+        return getPhase(Phase.PUBLISH);
+    }
+
+    @Override
+    public PhaseStats getSleepTime() {
+        return getPhase(Phase.SLEEP);
+    }
+
+    @Override
+    public Map<String, PhaseStats> getStrategyTimeByType() {
+        Map<String, PhaseStats> result = new TreeMap<>();
+        for (StrategyTimes times : byStrategy.values())
+            result.put(times.name, times.histogram.snapshot());
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public Map<String, Long> getStrategyNanosByNation() {
+        Map<String, Long> result = new TreeMap<>();
+        byNation.forEach((name, total) -> result.put(name, total.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public long getExpansions() {
+        return expansions.sum();
+    }
+
+    @Override
+    public long getBattles() {
+        return battles.sum();
+    }
+
+    @Override
+    public long getCaptures() {
+        return captures.sum();
+    }
+
+    @Override
+    public long getTies() {
+        return ties.sum();
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (LatencyHistogram phase : phases)
+            phase.reset();
+        byStrategy.clear();
+        byNation.clear();
+        expansions.reset();
+        battles.reset();
+        captures.reset();
+        ties.reset();
+        lastExpansions = lastBattles = lastCaptures = lastTies = 0;
+    }
+
+    private static final class StrategyTimes {
+        final String name;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        StrategyTimes(String name) {
+            this.name = name;
+        }
+    }
+}
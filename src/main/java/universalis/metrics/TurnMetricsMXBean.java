@@ -0,0 +1,42 @@
+package universalis.metrics;
+
+import java.util.Map;
+
+/**
+ * What TurnMetrics shows over JMX, for example in JDK Mission Control's MBean browser.
+ */
+public interface TurnMetricsMXBean {
+    long getTurns();
+
+    PhaseStats getTurnTime();
+
+    PhaseStats getStrategyTime();
+
+    PhaseStats getEliminationTime();
+
+    PhaseStats getDevelopmentTime();
+
+    PhaseStats getPublishTime();
+
+    PhaseStats getSleepTime();
+
+    /**
+     * Time of single nation moves on sampled turns, keyed by the strategy the nation played.
+     */
+    Map<String, PhaseStats> getStrategyTimeByType();
+
+    /**
+     * Total nanoseconds spent in each nation's moves on sampled turns, keyed by nation name.
+     */
+    Map<String, Long> getStrategyNanosByNation();
+
+    long getExpansions();
+
+    long getBattles();
+
+    long getCaptures();
+
+    long getTies();
+
+    void reset();
+}
@@ -0,0 +1,41 @@
+package universalis.random;
+
+/**
+ * Root of all randomness in one game. Every stream is derived from the game seed and a key, never
+ * from the order streams are requested in, so a game replays exactly from its seed and streams used
+ * on different threads never share state.
+ */
+public class RandomStreams {
+    /**
+     * Game-wide phases that draw random numbers outside of any single nation's turn.
+     */
+    public enum Phase { NAMES, SETUP, MAP }
+
+    private static final long NATION_KEY = 0x6e6174696f6eL;
+
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Stream for the nation at the given position in the starting nation list.
+     */
+    public SplitMixRandom nation(int ordinal) {
+        return stream(NATION_KEY + ordinal);
+    }
+
+    public SplitMixRandom phase(Phase phase) {
+        return stream(phase.ordinal());
+    }
+
+    private SplitMixRandom stream(long key) {
+        SplitMixRandom root = new SplitMixRandom(seed ^ SplitMixRandom.mix64(key));
+        return root.split();
+    }
+}
@@ -0,0 +1,118 @@
+package universalis.random;
+
+import java.util.Random;
+
+/**
+ * SplitMix64 generator, the algorithm behind java.util.SplittableRandom, exposed as a Random so it
+ * can be passed wherever the engine expects one. Unlike Random it keeps its state in plain fields,
+ * so a stream owned by one thread never pays for the CAS on Random's shared seed, and unlike
+ * SplittableRandom its state can be read back and restored.
+ *
+ * Instances are not thread-safe; give every thread or nation its own stream via split().
+ */
+public class SplitMixRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma;
+    private boolean initialized;
+
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitMixRandom(long seed, long gamma) {
+        super(0L);
+        this.seed = seed;
+        this.gamma = gamma;
+        this.initialized = true;
+    }
+
+    /**
+     * Restore a stream from a previously captured getState/getGamma pair.
+     */
+    public static SplitMixRandom restore(long state, long gamma) {
+        if ((gamma & 1L) == 0) throw new IllegalArgumentException("gamma must be odd");
+        return new SplitMixRandom(state, gamma);
+    }
+
+    /**
+     * New independent stream; advances this stream by two draws.
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long getState() { return seed; }
+    public long getGamma() { return gamma; }
+
+    @Override
+    public void setSeed(long seed) {
+        // Random's constructor calls this before our fields exist; reseeding afterwards is not supported
+        if (initialized) throw new UnsupportedOperationException("SplitMixRandom cannot be reseeded");
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (mix64(nextSeed()) >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (mix64(nextSeed()) >>> 32);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        // Lemire's multiply-shift with rejection: unbiased and usually a single draw
+        long product = (nextLong() >>> 32) * bound;
+        int low = (int) product;
+        if (Integer.compareUnsigned(low, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(low, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+                low = (int) product;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return mix64(nextSeed()) < 0;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    /**
+     * Stafford variant 13 finalizer; also handy for deriving well-spread seeds from small keys.
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int transitions = Long.bitCount(z ^ (z >>> 1));
+        return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
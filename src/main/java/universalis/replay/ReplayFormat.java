@@ -0,0 +1,201 @@
+package universalis.replay;
+
+import universalis.io.BinaryReader;
+import universalis.io.BinaryWriter;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.NationSummary;
+import universalis.snapshot.SnapshotEditor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Replay file layout, shared by ReplayRecorder and ReplayReader.
+ * <p>
+ * Header: magic, version, map width and height, keyframe interval. Then frames, each a type byte,
+ * the turn and the payload length as varints, and the payload. A DELTA holds the nations still
+ * playing, the ids eliminated this turn and the changed cells with their new owner id and
+ * development. A KEYFRAME holds the full map and every nation ever seen. An END frame marks a game
+ * that finished. Every recorded turn has a DELTA so playing forward never decodes a keyframe;
+ * keyframe turns additionally get a KEYFRAME so seeking never replays more than one interval.
+ */
+final class ReplayFormat {
+    static final int MAGIC = 0x4D555250; // "MURP"
+    static final int VERSION = 1;
+
+    static final int KEYFRAME = 1;
+    static final int DELTA = 2;
+    static final int END = 3;
+
+    private ReplayFormat() {}
+
+    static void writeKeyframe(BinaryWriter out, GameSnapshot snapshot) throws IOException {
+        int maxId = snapshot.getMaxNationId();
+        out.writeVarLong(maxId);
+        for (int id = 1; id <= maxId; id++)
+            writeSummary(out, snapshot.getNation(id), true);
+        writePlaying(out, snapshot.getNations());
+
+        long cells = (long) snapshot.getWidth() * snapshot.getHeight();
+        for (long cell = 0; cell < cells; cell++)
+            out.writeByte(snapshot.getDevelopment(cell));
+        int runOwner = snapshot.getOwnerId(0);
+        long runLength = 0;
+        for (long cell = 0; cell < cells; cell++) {
+            int owner = snapshot.getOwnerId(cell);
+            if (owner != runOwner) {
+                out.writeVarLong(runOwner);
+                out.writeVarLong(runLength);
+                runOwner = owner;
+                runLength = 0;
+            }
+            runLength++;
+        }
+        out.writeVarLong(runOwner);
+        out.writeVarLong(runLength);
+    }
+
+    static SnapshotEditor readKeyframe(BinaryReader in, int width, int height) throws IOException {
+        SnapshotEditor editor = new SnapshotEditor(width, height);
+        int maxId = in.readCount(Short.MAX_VALUE);
+        for (int id = 1; id <= maxId; id++) {
+            NationSummary nation = readSummary(in, id, null);
+            if (nation != null) editor.putNation(nation);
+        }
+        editor.setNations(readPlaying(in, editor));
+
+        long cells = (long) width * height;
+        byte[] development = new byte[(int) Math.min(cells, 1 << 16)];
+        for (long start = 0; start < cells; start += development.length) {
+            int length = (int) Math.min(development.length, cells - start);
+            in.readBytes(development, 0, length);
+            for (int i = 0; i < length; i++)
+                editor.setCell(start + i, GameSnapshot.NO_OWNER, development[i]);
+        }
+        long cell = 0;
+        while (cell < cells) {
+            int owner = in.readCount(maxId);
+            long runLength = in.readVarLong();
+            if (runLength <= 0 || runLength > cells - cell) throw new IOException("invalid owner run");
+            if (owner != GameSnapshot.NO_OWNER) {
+                for (long end = cell + runLength; cell < end; cell++)
+                    editor.setCell(cell, owner, editor.getDevelopment(cell));
+            } else {
+                cell += runLength;
+            }
+        }
+        return editor;
+    }
+
+    /**
+     * @param described nation ids whose name and strategy are already in the file; updated here
+     */
+    static void writeDelta(BinaryWriter out, GameSnapshot previous, GameSnapshot current, long[] changedCells,
+            BitSet described) throws IOException {
+        out.writeVarLong(current.getNations().size());
+        BitSet playing = new BitSet();
+        for (NationSummary nation : current.getNations()) {
+            boolean full = !described.get(nation.getId());
+            out.writeVarLong(nation.getId());
+            out.writeByte(full ? 1 : 0);
+            writeSummary(out, nation, full);
+            described.set(nation.getId());
+            playing.set(nation.getId());
+        }
+        List<NationSummary> eliminated = new ArrayList<>();
+        for (NationSummary nation : previous.getNations())
+            if (!playing.get(nation.getId())) eliminated.add(nation);
+        out.writeVarLong(eliminated.size());
+        for (NationSummary nation : eliminated)
+            out.writeVarLong(nation.getId());
+
+        out.writeVarLong(changedCells.length);
+        long last = 0;
+        for (long cell : changedCells) {
+            // change sets come sorted, so the gaps are small non-negative numbers
+            out.writeVarLong(cell - last);
+            last = cell;
+            out.writeVarLong(current.getOwnerId(cell));
+            out.writeByte(current.getDevelopment(cell));
+        }
+    }
+
+    static void readDelta(BinaryReader in, SnapshotEditor editor) throws IOException {
+        int playingCount = in.readCount(Short.MAX_VALUE);
+        List<NationSummary> playing = new ArrayList<>(playingCount);
+        for (int i = 0; i < playingCount; i++) {
+            int id = in.readCount(Short.MAX_VALUE);
+            boolean full = in.readByte() != 0;
+            NationSummary known = editor.getNation(id);
+            if (!full && known == null) throw new IOException("delta refers to undescribed nation " + id);
+            NationSummary summary = readSummary(in, id, full ? null : known);
+            editor.putNation(summary);
+            playing.add(summary);
+        }
+        int eliminatedCount = in.readCount(Short.MAX_VALUE);
+        for (int i = 0; i < eliminatedCount; i++) {
+            NationSummary known = editor.getNation(in.readCount(Short.MAX_VALUE));
+            if (known == null) throw new IOException("unknown eliminated nation");
+            editor.putNation(new NationSummary(known.getId(), known.getName(), known.getStrategy(), 0, 0, known.getArmy(), 0));
+        }
+        editor.setNations(playing);
+
+        long cells = (long) editor.getWidth() * editor.getHeight();
+        int changed = in.readCount(Integer.MAX_VALUE);
+        long cell = 0;
+        for (int i = 0; i < changed; i++) {
+            cell += in.readVarLong();
+            if (cell < 0 || cell >= cells) throw new IOException("cell out of range: " + cell);
+            int owner = in.readCount(Short.MAX_VALUE);
+            editor.setCell(cell, owner, in.readByte());
+        }
+    }
+
+    private static void writeSummary(BinaryWriter out, NationSummary nation, boolean full) throws IOException {
+        if (full) {
+            out.writeByte(nation == null ? 0 : 1);
+            if (nation == null) return;
+            out.writeString(nation.getName());
+            out.writeString(nation.getStrategy());
+        }
+        out.writeVarLong(nation.getProvinceCount());
+        out.writeVarLong(nation.getTotalDevelopment());
+        out.writeVarLong(nation.getArmy());
+        out.writeVarLong(nation.getBorderLength());
+    }
+
+    // reads a full record when known is null, otherwise just the stats on top of known
+    private static NationSummary readSummary(BinaryReader in, int id, NationSummary known) throws IOException {
+        String name;
+        String strategy;
+        if (known == null) {
+            if (in.readByte() == 0) return null;
+            name = in.readString();
+            strategy = in.readString();
+        } else {
+            name = known.getName();
+            strategy = known.getStrategy();
+        }
+        return new NationSummary(id, name, strategy, in.readCount(Integer.MAX_VALUE), in.readCount(Integer.MAX_VALUE),
+                in.readCount(Integer.MAX_VALUE), in.readCount(Integer.MAX_VALUE));
+    }
+
+    private static void writePlaying(BinaryWriter out, List<NationSummary> playing) throws IOException {
+        out.writeVarLong(playing.size());
+        for (NationSummary nation : playing)
+            out.writeVarLong(nation.getId());
+    }
+
+    private static List<NationSummary> readPlaying(BinaryReader in, SnapshotEditor editor) throws IOException {
+        int count = in.readCount(Short.MAX_VALUE);
+        List<NationSummary> playing = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            NationSummary nation = editor.getNation(in.readCount(Short.MAX_VALUE));
+            if (nation == null) throw new IOException("unknown playing nation");
+            playing.add(nation);
+        }
+        return playing;
+    }
+}
@@ -0,0 +1,57 @@
+package universalis.replay;
+
+import universalis.snapshot.GameSnapshot;
+
+import java.io.IOException;
+
+/**
+ * Turns wall-clock time into replay turns: a position that moves at a given number of turns per
+ * second, backwards when the speed is negative, and stops at either end. Meant to be driven from
+ * a render loop, one advance per frame.
+ */
+public class ReplayPlayer {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ReplayReader reader;
+    private double position;
+    private double speed;
+    private boolean paused;
+
+    public ReplayPlayer(ReplayReader reader, double turnsPerSecond) {
+        if (reader == null) throw new IllegalArgumentException("reader required");
+        this.reader = reader;
+        this.position = reader.getFirstTurn();
+        this.speed = turnsPerSecond;
+    }
+
+    public ReplayReader getReader() { return reader; }
+
+    public double getSpeed() { return speed; }
+
+    /**
+     * Turns per second; negative plays backwards.
+     */
+    public void setSpeed(double turnsPerSecond) { this.speed = turnsPerSecond; }
+
+    public boolean isPaused() { return paused; }
+    public void setPaused(boolean paused) { this.paused = paused; }
+
+    public int getTurn() { return (int) position; }
+
+    public void jumpTo(int turn) {
+        position = clamp(turn);
+    }
+
+    /**
+     * Move forward by the time since the previous frame and return the snapshot to draw.
+     */
+    public GameSnapshot advance(long elapsedNanos) throws IOException {
+        if (!paused)
+            position = clamp(position + speed * elapsedNanos / NANOS_PER_SECOND);
+        return reader.seek((int) position);
+    }
+
+    private double clamp(double turn) {
+        return Math.max(reader.getFirstTurn(), Math.min(reader.getLastTurn(), turn));
+    }
+}
@@ -0,0 +1,168 @@
+package universalis.replay;
+
+import universalis.io.BinaryReader;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.SnapshotEditor;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Random access to a replay file. Opening reads only the frame headers to index them; seek then
+ * decodes the nearest keyframe at or before the turn and the deltas after it, or just the deltas
+ * from the current turn when moving forward a short way. A file cut short by a crash is readable
+ * up to its last complete frame.
+ */
+public class ReplayReader implements Closeable {
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int keyframeInterval;
+
+    // frame index, in file order
+    private int frames;
+    private int[] types = new int[64];
+    private int[] turns = new int[64];
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+    private boolean complete;
+
+    // playback cursor
+    private SnapshotEditor editor;
+    private GameSnapshot current;
+    private int currentFrame = -1;
+
+    public static ReplayReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ReplayReader(channel, path);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ReplayReader(FileChannel channel, Path path) throws IOException {
+        this.channel = channel;
+        BinaryReader in = new BinaryReader(channel);
+        if (in.readInt() != ReplayFormat.MAGIC)
+            throw new IOException("not a replay: " + path);
+        int version = in.readInt();
+        if (version != ReplayFormat.VERSION)
+            throw new IOException("unsupported replay version " + version);
+        this.width = in.readInt();
+        this.height = in.readInt();
+        if (width <= 0 || height <= 0)
+            throw new IOException("invalid map size " + width + "x" + height);
+        this.keyframeInterval = in.readCount(Integer.MAX_VALUE);
+        index(in, channel.size());
+        if (frames == 0 || types[0] != ReplayFormat.KEYFRAME)
+            throw new IOException("replay has no starting keyframe");
+    }
+
+    private void index(BinaryReader in, long size) throws IOException {
+        try {
+            while (!in.atEnd()) {
+                int type = in.readByte();
+                int turn = in.readCount(Integer.MAX_VALUE);
+                int length = in.readCount(Integer.MAX_VALUE);
+                long offset = in.position();
+                if (offset + length > size)
+                    break;
+                if (type == ReplayFormat.END) {
+                    complete = true;
+                } else if (type == ReplayFormat.KEYFRAME || type == ReplayFormat.DELTA) {
+                    add(type, turn, offset, length);
+                } else {
+                    throw new IOException("unknown frame type " + type);
+                }
+                in.skip(length);
+            }
+        } catch (EOFException e) {
+            // last frame header was cut off; everything before it is usable
+        }
+    }
+
+    private void add(int type, int turn, long offset, int length) {
+        if (frames == types.length) {
+            types = Arrays.copyOf(types, frames * 2);
+            turns = Arrays.copyOf(turns, frames * 2);
+            offsets = Arrays.copyOf(offsets, frames * 2);
+            lengths = Arrays.copyOf(lengths, frames * 2);
+        }
+        types[frames] = type;
+        turns[frames] = turn;
+        offsets[frames] = offset;
+        lengths[frames] = length;
+        frames++;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getKeyframeInterval() { return keyframeInterval; }
+    public int getFirstTurn() { return turns[0]; }
+    public int getLastTurn() { return turns[frames - 1]; }
+
+    /**
+     * True if the recording ran until the game finished.
+     */
+    public boolean isComplete() { return complete; }
+
+    /**
+     * State of the game at the end of the given turn.
+     */
+    public GameSnapshot seek(int turn) throws IOException {
+        if (turn < getFirstTurn() || turn > getLastTurn())
+            throw new IllegalArgumentException("turn " + turn + " not in " + getFirstTurn() + ".." + getLastTurn());
+        if (current != null && current.getTurn() == turn)
+            return current;
+
+        int keyframe = lastFrameAtOrBefore(turn, ReplayFormat.KEYFRAME);
+        // keep rolling forward from where we are unless a keyframe gets us there sooner
+        if (current == null || current.getTurn() > turn || turns[keyframe] > current.getTurn()) {
+            editor = ReplayFormat.readKeyframe(payload(keyframe), width, height);
+            current = editor.build(turns[keyframe]);
+            currentFrame = keyframe;
+        }
+        for (int frame = currentFrame + 1; frame < frames && turns[frame] <= turn; frame++) {
+            if (types[frame] != ReplayFormat.DELTA)
+                continue;
+            ReplayFormat.readDelta(payload(frame), editor);
+            current = editor.build(turns[frame]);
+            currentFrame = frame;
+        }
+        return current;
+    }
+
+    private int lastFrameAtOrBefore(int turn, int type) {
+        int found = 0;
+        for (int frame = 0; frame < frames && turns[frame] <= turn; frame++)
+            if (types[frame] == type)
+                found = frame;
+        return found;
+    }
+
+    private BinaryReader payload(int frame) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(lengths[frame]);
+        long position = offsets[frame];
+        while (bytes.hasRemaining()) {
+            int read = channel.read(bytes, position);
+            if (read < 0)
+                throw new EOFException("replay frame cut short");
+            position += read;
+        }
+        bytes.flip();
+        return new BinaryReader(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
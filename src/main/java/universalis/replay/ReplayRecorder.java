@@ -0,0 +1,164 @@
+package universalis.replay;
+
+import universalis.Universalis;
+import universalis.events.GameEvent;
+import universalis.events.Subscription;
+import universalis.io.BinaryWriter;
+import universalis.snapshot.GameSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records a game into a replay file while it plays. The game thread only queues each turn's
+ * immutable snapshot and change set; encoding and file writes happen on the recorder's own thread.
+ * When the writer falls behind by QUEUE_CAPACITY turns the game waits, so no turn is ever lost.
+ */
+public class ReplayRecorder implements Closeable {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 50;
+    private static final int QUEUE_CAPACITY = 256;
+    // queued by close to stop the writer once everything before it is written
+    private static final GameEvent CLOSE = new GameEvent(GameEvent.Type.GAME_FINISHED, null);
+
+    private final FileChannel channel;
+    private final BinaryWriter out;
+    private final int keyframeInterval;
+    private final BlockingQueue<GameEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final Subscription subscription;
+    private volatile IOException failure;
+    private boolean closed;
+
+    // writer thread only
+    private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+    private final BinaryWriter frame = new BinaryWriter(Channels.newChannel(frameBytes));
+    private final BitSet described = new BitSet();
+    private GameSnapshot previous;
+    private final int firstTurn;
+
+    /**
+     * Start recording from the game's current turn. Turns on snapshot publishing for the game; call
+     * between turns, from the thread that plays the game.
+     */
+    public static ReplayRecorder start(Universalis game, Path path, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) throw new IllegalArgumentException("keyframeInterval must be > 0");
+        game.setSnapshotPublishing(true);
+        return new ReplayRecorder(game, path, keyframeInterval);
+    }
+
+    private ReplayRecorder(Universalis game, Path path, int keyframeInterval) throws IOException {
+        this.keyframeInterval = keyframeInterval;
+        this.previous = game.getSnapshot();
+        this.firstTurn = previous.getTurn();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.out = new BinaryWriter(channel);
+        try {
+            out.writeInt(ReplayFormat.MAGIC);
+            out.writeInt(ReplayFormat.VERSION);
+            out.writeInt(previous.getWidth());
+            out.writeInt(previous.getHeight());
+            out.writeVarLong(keyframeInterval);
+            writeKeyframe(previous);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.writer = new Thread(this::writeLoop, "replay-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.subscription = game.getEventBus().subscribe(this::onGameEvent);
+    }
+
+    // game thread: hand the turn over, never encode here
+    private void onGameEvent(GameEvent event) {
+        if (failure != null || event.getSnapshot() == null)
+            return;
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                GameEvent event = queue.take();
+                if (event == CLOSE)
+                    break;
+                write(event);
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            failure = new IOException("replay writer interrupted", e);
+            queue.clear();
+        }
+    }
+
+    private void write(GameEvent event) throws IOException {
+        GameSnapshot snapshot = event.getSnapshot();
+        if (event.getType() == GameEvent.Type.GAME_FINISHED) {
+            writeFrame(ReplayFormat.END, snapshot.getTurn());
+            out.flush();
+            return;
+        }
+        ReplayFormat.writeDelta(frame, previous, snapshot, event.getChangedCells(), described);
+        writeFrame(ReplayFormat.DELTA, snapshot.getTurn());
+        if ((snapshot.getTurn() - firstTurn) % keyframeInterval == 0)
+            writeKeyframe(snapshot);
+        previous = snapshot;
+    }
+
+    private void writeKeyframe(GameSnapshot snapshot) throws IOException {
+        ReplayFormat.writeKeyframe(frame, snapshot);
+        for (int id = 1; id <= snapshot.getMaxNationId(); id++)
+            described.set(id);
+        writeFrame(ReplayFormat.KEYFRAME, snapshot.getTurn());
+    }
+
+    // payloads are staged in memory so the frame header can carry their length for seeking
+    private void writeFrame(int type, int turn) throws IOException {
+        frame.flush();
+        out.writeByte(type);
+        out.writeVarLong(turn);
+        out.writeVarLong(frameBytes.size());
+        out.writeBytes(frameBytes.toByteArray(), 0, frameBytes.size());
+        frameBytes.reset();
+    }
+
+    /**
+     * Stop recording, wait for every queued turn to be written and close the file.
+     *
+     * @throws IOException if writing failed at any point while recording
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        subscription.unsubscribe();
+        try {
+            queue.put(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+        } finally {
+            channel.close();
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -0,0 +1,114 @@
+package universalis.report;
+
+import universalis.GameResult;
+import universalis.Universalis;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.NationSummary;
+
+import java.io.Writer;
+
+/**
+ * Live terminal view using ANSI escape codes: one colored character per cell, the first letter of
+ * its owner. The map is drawn once and afterwards only the cells that differ from the previous
+ * turn are redrawn, found by comparing game snapshots, so each turn writes a few bytes per change
+ * instead of the whole grid. The nation list below the map is rewritten every turn. It draws from
+ * published snapshots, so it turns snapshot publishing on when the game starts and puts the
+ * game's own setting back when it finishes.
+ */
+public class AnsiReporter extends SummaryReporter {
+    private static final String ESC = "\u001b[";
+    private static final String RESET = ESC + "0m";
+    private static final int EMPTY_COLOR = 250;
+    // 6x6x6 color cube of the 256-color palette
+    private static final int CUBE_START = 16;
+    private static final int CUBE_SIZE = 216;
+
+    private final StringBuilder frame = new StringBuilder();
+    private GameSnapshot drawn;
+    private int legendLines;
+    private boolean publishedSnapshots;
+
+    public AnsiReporter(Writer out) {
+        super(out);
+    }
+
+    public static AnsiReporter toStandardOut() {
+        return new AnsiReporter(standardOut());
+    }
+
+    @Override
+    public void gameStarting(Universalis game) {
+        publishedSnapshots = game.isSnapshotPublishing();
+        game.setSnapshotPublishing(true);
+    }
+
+    @Override
+    public void turnStarting(Universalis game) {
+        GameSnapshot snapshot = game.getSnapshot();
+        if (snapshot == null || snapshot == drawn)
+            return;
+        frame.setLength(0);
+        if (drawn == null) {
+            frame.append(ESC).append("2J");
+            for (int y = 0; y < snapshot.getHeight(); y++) {
+                moveTo(0, y);
+                for (int x = 0; x < snapshot.getWidth(); x++)
+                    appendCell(snapshot, snapshot.cellOf(x, y));
+            }
+        } else {
+            for (long cell : snapshot.changedSince(drawn)) {
+                moveTo(snapshot.xOf(cell), snapshot.yOf(cell));
+                appendCell(snapshot, cell);
+            }
+        }
+        appendLegend(snapshot);
+        frame.append(RESET);
+        moveTo(0, snapshot.getHeight() + legendLines + 1);
+        drawn = snapshot;
+        write(frame);
+        flush();
+    }
+
+    @Override
+    public void gameFinished(Universalis game, GameResult result) {
+        turnStarting(game);
+        super.gameFinished(game, result);
+        game.setSnapshotPublishing(publishedSnapshots);
+    }
+
+    private void appendLegend(GameSnapshot snapshot) {
+        int row = snapshot.getHeight() + 1;
+        moveTo(0, row++);
+        frame.append(RESET).append("Turn ").append(snapshot.getTurn()).append(ESC).append('K');
+        for (NationSummary nation : snapshot.getNations()) {
+            moveTo(0, row++);
+            frame.append(ESC).append("48;5;").append(colorOf(nation)).append("m ").append(RESET)
+                    .append(' ').append(nation.getName())
+                    .append(" - provinces=").append(nation.getProvinceCount())
+                    .append(", army=").append(nation.getArmy())
+                    .append(ESC).append('K');
+        }
+        // clear lines left over from nations eliminated since the last draw
+        int lines = row - snapshot.getHeight() - 1;
+        for (int i = lines; i < legendLines; i++) {
+            moveTo(0, row++);
+            frame.append(ESC).append('K');
+        }
+        legendLines = lines;
+    }
+
+    private void appendCell(GameSnapshot snapshot, long cell) {
+        NationSummary owner = snapshot.getOwner(cell);
+        frame.append(ESC).append("48;5;").append(owner == null ? EMPTY_COLOR : colorOf(owner)).append("m")
+                .append(owner == null || owner.getName().isEmpty() ? ' ' : owner.getName().charAt(0));
+    }
+
+    // rows and columns are 1-based in ANSI
+    private void moveTo(int x, int y) {
+        frame.append(ESC).append(y + 1).append(';').append(x + 1).append('H');
+    }
+
+    private static int colorOf(NationSummary nation) {
+        return CUBE_START + Math.floorMod(nation.getName().hashCode(), CUBE_SIZE);
+    }
+}
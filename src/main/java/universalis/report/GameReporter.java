@@ -0,0 +1,29 @@
+package universalis.report;
+
+import universalis.GameResult;
+import universalis.Universalis;
+
+/**
+ * Receives progress from Universalis.playToCompletion, all on the game thread. Implementations
+ * decide how much to write and where; see QuietReporter, SummaryReporter, SnapshotReporter and
+ * AnsiReporter.
+ */
+public interface GameReporter {
+    default void gameStarting(Universalis game) {
+    }
+
+    /**
+     * Called before every turn with the game as it stands.
+     */
+    default void turnStarting(Universalis game) {
+    }
+
+    default void stalemateDetected(Universalis game, int idleTurns) {
+    }
+
+    /**
+     * Last call for a game; buffered reporters flush here.
+     */
+    default void gameFinished(Universalis game, GameResult result) {
+    }
+}
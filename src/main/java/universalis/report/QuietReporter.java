@@ -0,0 +1,7 @@
+package universalis.report;
+
+/**
+ * Reports nothing; used by headless batch runs and benchmarks.
+ */
+public class QuietReporter implements GameReporter {
+}
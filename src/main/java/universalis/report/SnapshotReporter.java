@@ -0,0 +1,115 @@
+package universalis.report;
+
+import universalis.Universalis;
+import universalis.map.Map;
+import universalis.map.Nation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes the whole map and every nation's stats before each turn, then the summary. This is the
+ * default output of playToCompletion. Rows are assembled in a reused buffer with plain appends
+ * and owner names are shortened once per nation, so the cost is one pass over the map with no
+ * String made per cell.
+ */
+public class SnapshotReporter extends SummaryReporter {
+    private static final int MAX_NAME_LENGTH = 10;
+    private static final int DEVELOPMENT_WIDTH = 2;
+
+    private final StringBuilder buffer = new StringBuilder();
+    // owner names cut to MAX_NAME_LENGTH, kept for the whole game
+    private final java.util.Map<Nation, String> shortNames = new IdentityHashMap<>();
+
+    public SnapshotReporter(Writer out) {
+        super(out);
+    }
+
+    public static SnapshotReporter toStandardOut() {
+        return new SnapshotReporter(standardOut());
+    }
+
+    @Override
+    public void turnStarting(Universalis game) {
+        try {
+            writeSnapshot(game, out, buffer, shortNames);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The text Universalis.toString returns, without the trailing newline the reporter adds.
+     */
+    public static String snapshotText(Universalis game) {
+        StringBuilder text = new StringBuilder();
+        try {
+            appendSnapshot(game, text, new StringBuilder(), new IdentityHashMap<>());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    private static void writeSnapshot(Universalis game, Writer out, StringBuilder row,
+                                      java.util.Map<Nation, String> shortNames) throws IOException {
+        appendSnapshot(game, out, row, shortNames);
+        out.write('\n');
+    }
+
+    private static void appendSnapshot(Universalis game, Appendable out, StringBuilder row,
+                                       java.util.Map<Nation, String> shortNames) throws IOException {
+        Map map = game.getMap();
+        out.append("\n=== Universalis Map snapshot ===\n");
+        for (int y = 0; y < map.getHeight(); y++) {
+            row.setLength(0);
+            for (int x = 0; x < map.getWidth(); x++) {
+                long cell = map.cellOf(x, y);
+                Nation owner = map.getOwner(cell);
+                appendPadded(row, map.getDevelopment(cell), DEVELOPMENT_WIDTH);
+                row.append(':');
+                appendPadded(row, owner == null ? "." : shortNames.computeIfAbsent(owner, SnapshotReporter::shortName),
+                        MAX_NAME_LENGTH);
+                row.append(' ');
+            }
+            row.append('\n');
+            out.append(row);
+        }
+
+        out.append("\n=== Nations ===\n");
+        for (Nation nation : game.getNations()) {
+            row.setLength(0);
+            row.append(nation.getName())
+                    .append(" - provinces=").append(nation.getProvinceCount())
+                    .append(", totalDev=").append(nation.getTotalDevelopment())
+                    .append(", army=").append(nation.getArmy())
+                    .append('\n');
+            out.append(row);
+        }
+        out.append("===============================");
+    }
+
+    private static String shortName(Nation nation) {
+        String name = nation.getName();
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+    // left-aligned
+    private static void appendPadded(StringBuilder row, String text, int width) {
+        row.append(text);
+        for (int i = text.length(); i < width; i++)
+            row.append(' ');
+    }
+
+    // right-aligned, padded by digit count so no String is made for the number
+    private static void appendPadded(StringBuilder row, int value, int width) {
+        int length = value < 0 ? 2 : 1;
+        for (int rest = value / 10; rest != 0; rest /= 10)
+            length++;
+        for (int i = length; i < width; i++)
+            row.append(' ');
+        row.append(value);
+    }
+}
@@ -0,0 +1,72 @@
+package universalis.report;
+
+import universalis.GameResult;
+import universalis.Universalis;
+import universalis.map.Nation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes only the stalemate notice and the end-of-game summary. Output goes through the given
+ * Writer, which is flushed when the game finishes but never closed.
+ */
+public class SummaryReporter implements GameReporter {
+    protected final Writer out;
+
+    public SummaryReporter(Writer out) {
+        if (out == null)
+            throw new IllegalArgumentException("writer required");
+        this.out = out;
+    }
+
+    /**
+     * Buffered writer over the current System.out.
+     */
+    protected static Writer standardOut() {
+        return new BufferedWriter(new OutputStreamWriter(System.out));
+    }
+
+    @Override
+    public void stalemateDetected(Universalis game, int idleTurns) {
+        write("Stalemate detected after " + idleTurns + " idle turns. Aborting.\n");
+    }
+
+    @Override
+    public void gameFinished(Universalis game, GameResult result) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Took ").append(result.getTurns()).append(" turns.\n");
+        if (!game.getNations().isEmpty()) {
+            Nation winner = game.getNations().getFirst();
+            summary.append("Finished. Winner: ").append(winner.getName()).append('\n');
+            summary.append("=== Game Metrics ===\n");
+            summary.append("  - Total Provinces: ").append(winner.getProvinceCount()).append('\n');
+            summary.append("  - Total Development: ").append(winner.getTotalDevelopment()).append('\n');
+            summary.append("  - Final Army Size: ").append(winner.getArmy()).append('\n');
+            summary.append("====================\n");
+        } else {
+            summary.append("Finished. No winner.\n");
+        }
+        write(summary);
+        flush();
+    }
+
+    protected void write(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
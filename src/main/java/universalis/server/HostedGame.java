@@ -0,0 +1,213 @@
+package universalis.server;
+
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+import universalis.snapshot.GameSnapshot;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game played by a SimulationServer on its own virtual thread. The game runs until one nation
+ * is left or maxTurns turns are played, waiting turnDelay between turns; pause, step, resume and
+ * cancel take effect between turns, and waiting for the delay or for a step never holds a carrier
+ * thread.
+ * <p>
+ * Every turn publishes a GameSnapshot. Viewers wait in awaitSnapshotAfter on their own threads and
+ * read whatever is newest when they wake up, so any number of viewers, fast or slow, costs the game
+ * one signal per turn.
+ */
+public final class HostedGame {
+    public enum State { PAUSED, RUNNING, FINISHED, CANCELLED }
+
+    private final int id;
+    private final Universalis game;
+    private final long turnDelayNanos;
+    private final int maxTurns;
+
+    // guards changes to state, pendingSteps and latest, and changed is signalled after each; the
+    // volatile fields can be read without it, so status requests never wait for the game
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile State state;
+    private int pendingSteps;
+    private volatile GameSnapshot latest;
+    private Thread thread;
+
+    HostedGame(int id, Universalis game, long turnDelayMs, int maxTurns, boolean paused) {
+        if (game == null)
+            throw new IllegalArgumentException("game required");
+        if (turnDelayMs < 0)
+            throw new IllegalArgumentException("turnDelayMs must be >= 0");
+        if (maxTurns <= 0)
+            throw new IllegalArgumentException("maxTurns must be > 0");
+        this.id = id;
+        this.game = game;
+        this.turnDelayNanos = TimeUnit.MILLISECONDS.toNanos(turnDelayMs);
+        this.maxTurns = maxTurns;
+        this.state = paused ? State.PAUSED : State.RUNNING;
+        // a bus of its own, so hundreds of games do not fan into the shared one
+        game.setEventBus(new GameEventBus());
+        game.setSnapshotPublishing(true);
+        this.latest = game.getSnapshot();
+    }
+
+    void start() {
+        thread = Thread.ofVirtual().name("game-" + id).start(this::play);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public long getTurnDelayMs() {
+        return TimeUnit.NANOSECONDS.toMillis(turnDelayNanos);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * The state at the end of the last completed turn.
+     */
+    public GameSnapshot getSnapshot() {
+        return latest;
+    }
+
+    public void pause() {
+        transition(State.RUNNING, State.PAUSED);
+    }
+
+    public void resume() {
+        transition(State.PAUSED, State.RUNNING);
+    }
+
+    /**
+     * Play the given number of turns on a paused game, which stays paused afterwards.
+     *
+     * @throws IllegalStateException if the game is not paused
+     */
+    public void step(int turns) {
+        if (turns <= 0)
+            throw new IllegalArgumentException("turns must be > 0");
+        lock.lock();
+        try {
+            if (state != State.PAUSED)
+                throw new IllegalStateException("game " + id + " is " + state + ", not PAUSED");
+            pendingSteps += turns;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the game after the turn in progress, if any. Does nothing once the game is over.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            if (isOver())
+                return;
+            state = State.CANCELLED;
+            pendingSteps = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for the game thread to stop, at most the given time. True when it has.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread running = thread;
+        return running == null || running.join(Duration.ofNanos(unit.toNanos(timeout)));
+    }
+
+    /**
+     * The newest snapshot once it is past the given turn or the game is over, or null when the
+     * timeout passes first.
+     */
+    public GameSnapshot awaitSnapshotAfter(int turn, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (latest.getTurn() <= turn && !isOver()) {
+                if (remaining <= 0)
+                    return null;
+                remaining = changed.awaitNanos(remaining);
+            }
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transition(State from, State to) {
+        lock.lock();
+        try {
+            if (state != from)
+                throw new IllegalStateException("game " + id + " is " + state + ", not " + from);
+            state = to;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isOver() {
+        return state == State.FINISHED || state == State.CANCELLED;
+    }
+
+    private void play() {
+        try {
+            while (awaitTurn()) {
+                game.runTurns(1);
+                boolean decided = game.getNations().size() <= 1 || game.getCompletedTurns() >= maxTurns;
+                lock.lock();
+                try {
+                    latest = game.getSnapshot();
+                    if (decided && !isOver())
+                        state = State.FINISHED;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+        } catch (RuntimeException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    // block until a turn may be played: running and the delay passed, or a step is pending
+    private boolean awaitTurn() throws InterruptedException {
+        lock.lock();
+        try {
+            if (state == State.RUNNING && turnDelayNanos > 0 && latest.getTurn() > 0) {
+                long remaining = turnDelayNanos;
+                while (state == State.RUNNING && remaining > 0)
+                    remaining = changed.awaitNanos(remaining);
+            }
+            while (state == State.PAUSED && pendingSteps == 0)
+                changed.await();
+            if (isOver())
+                return false;
+            if (state == State.PAUSED)
+                pendingSteps--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
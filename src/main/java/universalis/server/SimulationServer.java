@@ -0,0 +1,324 @@
+package universalis.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import universalis.Universalis;
+import universalis.report.QuietReporter;
+import universalis.snapshot.GameSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many games in one JVM behind a small HTTP API on the loopback interface only. Every game
+ * plays on its own virtual thread and every request, including each open event stream, is handled
+ * on a virtual thread too, so hundreds of games and viewers cost little more than their state.
+ *
+ * <pre>
+ * POST   /games?size=40&amp;nations=6&amp;seed=1&amp;delay=100&amp;maxTurns=1000&amp;paused=false&amp;mode=SEQUENTIAL
+ * GET    /games                     status of every game
+ * GET    /games/{id}                status of one game
+ * POST   /games/{id}/pause
+ * POST   /games/{id}/resume
+ * POST   /games/{id}/step?turns=1   play turns on a paused game
+ * DELETE /games/{id}                cancel the game and forget it
+ * GET    /games/{id}/events         server-sent events: a keyframe, one delta per turn, then end
+ * </pre>
+ *
+ * All parameters of POST /games are optional. Answers are JSON in the formats of TurnFrames; errors
+ * are {"error": message} with 400 for bad parameters, 404 for unknown games, 405 for unsupported
+ * methods and 409 for moves the game's state does not allow.
+ *
+ * Usage: SimulationServer [--port P] [--max-games N]
+ */
+public final class SimulationServer {
+    private static final String GAMES = "/games";
+    private static final Set<String> ACTIONS = Set.of("", "pause", "resume", "step", "events");
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_GAMES = 1000;
+    // how often an idle event stream writes a comment, which is how closed viewers get noticed
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final int maxGames;
+    private final HttpServer http;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Integer, HostedGame> games = new ConcurrentHashMap<>();
+    // one permit per game that may still be hosted; taken before a game is built, so concurrent
+    // requests cannot overshoot maxGames, and returned when a game is deleted
+    private final Semaphore slots;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * @param port     port on the loopback interface, 0 for any free one
+     * @param maxGames most games hosted at once, finished ones included until deleted
+     */
+    public SimulationServer(int port, int maxGames) throws IOException {
+        if (port < 0 || port > 0xFFFF)
+            throw new IllegalArgumentException("invalid port " + port);
+        if (maxGames <= 0)
+            throw new IllegalArgumentException("maxGames must be > 0");
+        this.maxGames = maxGames;
+        this.slots = new Semaphore(maxGames);
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.setExecutor(executor);
+        http.createContext(GAMES, this::handle);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    /**
+     * Cancel every game, close all event streams and stop listening.
+     */
+    public void stop() {
+        for (HostedGame game : games.values())
+            game.cancel();
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Start hosting a game; it plays right away unless paused is set.
+     *
+     * @throws IllegalStateException when maxGames games are hosted already
+     */
+    public HostedGame host(Universalis game, long turnDelayMs, int maxTurns, boolean paused) {
+        if (!slots.tryAcquire())
+            throw new IllegalStateException("already hosting " + maxGames + " games");
+        HostedGame hosted = null;
+        try {
+            game.setReporter(new QuietReporter());
+            hosted = new HostedGame(nextId.getAndIncrement(), game, turnDelayMs, maxTurns, paused);
+            games.put(hosted.getId(), hosted);
+            hosted.start();
+            return hosted;
+        } catch (RuntimeException e) {
+            if (hosted != null)
+                games.remove(hosted.getId(), hosted);
+            slots.release();
+            throw e;
+        }
+    }
+
+    public HostedGame getGame(int id) {
+        return games.get(id);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, TurnFrames.error(e.getMessage()));
+            } catch (IllegalStateException e) {
+                respond(exchange, 409, TurnFrames.error(e.getMessage()));
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring(GAMES.length()).split("/");
+        // "" for /games, then the id and the action
+        if (path.length == 0 || path.length == 1 && path[0].isEmpty()) {
+            if (method.equals("GET"))
+                respond(exchange, 200, list());
+            else if (method.equals("POST"))
+                create(exchange);
+            else
+                respond(exchange, 405, TurnFrames.error("use GET or POST"));
+            return;
+        }
+        if (!path[0].isEmpty() || path.length > 3) {
+            respond(exchange, 404, TurnFrames.error("no such resource"));
+            return;
+        }
+        HostedGame game = parseId(path[1]);
+        if (game == null) {
+            respond(exchange, 404, TurnFrames.error("no game " + path[1]));
+            return;
+        }
+        String action = path.length == 3 ? path[2] : "";
+        switch (method + " " + action) {
+            case "GET ":
+                respond(exchange, 200, TurnFrames.status(game));
+                break;
+            case "DELETE ":
+                game.cancel();
+                if (games.remove(game.getId(), game))
+                    slots.release();
+                respond(exchange, 200, TurnFrames.status(game));
+                break;
+            case "POST pause":
+                game.pause();
+                respond(exchange, 200, TurnFrames.status(game));
+                break;
+            case "POST resume":
+                game.resume();
+                respond(exchange, 200, TurnFrames.status(game));
+                break;
+            case "POST step":
+                game.step(intParameter(parameters(exchange), "turns", 1));
+                respond(exchange, 202, TurnFrames.status(game));
+                break;
+            case "GET events":
+                stream(exchange, game);
+                break;
+            default:
+                if (ACTIONS.contains(action))
+                    respond(exchange, 405, TurnFrames.error(method + " not supported here"));
+                else
+                    respond(exchange, 404, TurnFrames.error("no such resource"));
+        }
+    }
+
+    private HostedGame parseId(String id) {
+        try {
+            return games.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String list() {
+        StringBuilder out = new StringBuilder("[");
+        games.values().stream().sorted((a, b) -> Integer.compare(a.getId(), b.getId())).forEach(game -> {
+            if (out.length() > 1) out.append(',');
+            out.append(TurnFrames.status(game));
+        });
+        return out.append(']').toString();
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        int size = intParameter(parameters, "size", 40);
+        int nations = intParameter(parameters, "nations", 6);
+        long seed = parameters.containsKey("seed") ? Long.parseLong(parameters.get("seed")) : System.nanoTime();
+        long delay = intParameter(parameters, "delay", 0);
+        int maxTurns = intParameter(parameters, "maxTurns", 1000);
+        boolean paused = Boolean.parseBoolean(parameters.getOrDefault("paused", "false"));
+        Universalis.TurnMode mode = Universalis.TurnMode.valueOf(parameters.getOrDefault("mode", "SEQUENTIAL"));
+
+        Universalis game = Universalis.setupDefaultGame(size, nations, seed);
+        game.setTurnMode(mode);
+        HostedGame hosted = host(game, delay, maxTurns, paused);
+        exchange.getResponseHeaders().set("Location", GAMES + "/" + hosted.getId());
+        respond(exchange, 201, TurnFrames.status(hosted));
+    }
+
+    // a keyframe, then one delta per published snapshot the viewer gets to see, then end
+    private void stream(HttpExchange exchange, HostedGame game) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        try {
+            GameSnapshot sent = game.getSnapshot();
+            send(body, "keyframe", TurnFrames.keyframe(game, sent));
+            while (true) {
+                GameSnapshot next = game.awaitSnapshotAfter(sent.getTurn(), HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (next == null) {
+                    body.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    continue;
+                }
+                HostedGame.State state = game.getState();
+                if (state == HostedGame.State.FINISHED || state == HostedGame.State.CANCELLED) {
+                    // the turn in progress when the game was cancelled still publishes a snapshot
+                    game.awaitTermination(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                    next = game.getSnapshot();
+                    if (next != sent)
+                        send(body, "turn", TurnFrames.delta(game, next, sent));
+                    send(body, "end", TurnFrames.status(game));
+                    return;
+                }
+                send(body, "turn", TurnFrames.delta(game, next, sent));
+                sent = next;
+            }
+        } catch (InterruptedException e) {
+            // the server is stopping
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(OutputStream body, String event, String data) throws IOException {
+        body.write(("event: " + event + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty())
+            return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + value);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int maxGames = DEFAULT_MAX_GAMES;
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + flag);
+            String value = args[++i];
+            switch (flag) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--max-games":
+                    maxGames = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + flag);
+            }
+        }
+
+        SimulationServer server = new SimulationServer(port, maxGames);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Serving games on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort() + GAMES);
+    }
+}
@@ -0,0 +1,138 @@
+package universalis.server;
+
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.NationSummary;
+
+/**
+ * JSON sent by the SimulationServer. Cells are ids (y * width + x) and owners are the snapshot's
+ * owner ids, 0 for none; nations are listed as [id, name, strategy, provinces, development, army].
+ * <p>
+ * A viewer first gets a keyframe with the whole map: owners run-length encoded as [count, owner]
+ * pairs and development as one number per cell. After that each delta lists [cell, owner,
+ * development] triples for the cells that changed since the frame before it, which may be several
+ * turns back when the viewer fell behind.
+ */
+final class TurnFrames {
+    private TurnFrames() {
+    }
+
+    static String status(HostedGame game) {
+        GameSnapshot snapshot = game.getSnapshot();
+        StringBuilder out = new StringBuilder(160);
+        out.append("{\"id\":").append(game.getId());
+        out.append(",\"state\":\"").append(game.getState()).append('"');
+        out.append(",\"turn\":").append(snapshot.getTurn());
+        out.append(",\"nations\":").append(snapshot.getNations().size());
+        out.append(",\"width\":").append(snapshot.getWidth());
+        out.append(",\"height\":").append(snapshot.getHeight());
+        out.append(",\"maxTurns\":").append(game.getMaxTurns());
+        out.append(",\"turnDelayMs\":").append(game.getTurnDelayMs());
+        return out.append('}').toString();
+    }
+
+    static String keyframe(HostedGame game, GameSnapshot snapshot) {
+        long cells = (long) snapshot.getWidth() * snapshot.getHeight();
+        StringBuilder out = header(game, snapshot, (int) Math.min(Integer.MAX_VALUE - 8, 64 + cells * 3));
+        out.append(",\"width\":").append(snapshot.getWidth());
+        out.append(",\"height\":").append(snapshot.getHeight());
+        out.append(",\"owners\":[");
+        long run = 0;
+        int owner = cells == 0 ? GameSnapshot.NO_OWNER : snapshot.getOwnerId(0);
+        boolean first = true;
+        for (long cell = 0; cell <= cells; cell++) {
+            int next = cell < cells ? snapshot.getOwnerId(cell) : -1;
+            if (next == owner) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                if (!first) out.append(',');
+                out.append(run).append(',').append(owner);
+                first = false;
+            }
+            owner = next;
+            run = 1;
+        }
+        out.append("],\"development\":[");
+        for (long cell = 0; cell < cells; cell++) {
+            if (cell > 0) out.append(',');
+            out.append(snapshot.getDevelopment(cell));
+        }
+        out.append(']');
+        return nations(out, snapshot).append('}').toString();
+    }
+
+    static String delta(HostedGame game, GameSnapshot snapshot, GameSnapshot older) {
+        long[] changed = snapshot.changedSince(older);
+        StringBuilder out = header(game, snapshot, 96 + changed.length * 16);
+        out.append(",\"from\":").append(older.getTurn());
+        out.append(",\"cells\":[");
+        for (int i = 0; i < changed.length; i++) {
+            long cell = changed[i];
+            if (i > 0) out.append(',');
+            out.append(cell).append(',').append(snapshot.getOwnerId(cell)).append(',').append(snapshot.getDevelopment(cell));
+        }
+        out.append(']');
+        return nations(out, snapshot).append('}').toString();
+    }
+
+    private static StringBuilder header(HostedGame game, GameSnapshot snapshot, int capacity) {
+        StringBuilder out = new StringBuilder(capacity);
+        out.append("{\"game\":").append(game.getId());
+        out.append(",\"turn\":").append(snapshot.getTurn());
+        out.append(",\"state\":\"").append(game.getState()).append('"');
+        return out;
+    }
+
+    private static StringBuilder nations(StringBuilder out, GameSnapshot snapshot) {
+        out.append(",\"nations\":[");
+        boolean first = true;
+        for (NationSummary nation : snapshot.getNations()) {
+            if (!first) out.append(',');
+            first = false;
+            out.append('[').append(nation.getId()).append(',');
+            quote(out, nation.getName()).append(',');
+            quote(out, nation.getStrategy()).append(',');
+            out.append(nation.getProvinceCount()).append(',');
+            out.append(nation.getTotalDevelopment()).append(',');
+            out.append(nation.getArmy()).append(']');
+        }
+        return out.append(']');
+    }
+
+    static String error(String message) {
+        return quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    static StringBuilder quote(StringBuilder out, String value) {
+        if (value == null)
+            return out.append("null");
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,117 @@
+package universalis.snapshot;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable picture of a game at the end of a turn, safe to read from any thread while the
+ * simulation keeps running.
+ * Cell data is split into fixed-size chunks and a snapshot shares every chunk the turn did not
+ * touch with its predecessor, so publishing costs what changed rather than the whole map.
+ */
+public final class GameSnapshot {
+    static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** Owner id of an unowned cell. */
+    public static final int NO_OWNER = 0;
+
+    private final int turn;
+    private final int width;
+    private final int height;
+    final short[][] owners;
+    final byte[][] development;
+    // owner id -> summary, index 0 is NO_OWNER
+    private final NationSummary[] nationsById;
+    private final List<NationSummary> nations;
+
+    GameSnapshot(int turn, int width, int height, short[][] owners, byte[][] development,
+            NationSummary[] nationsById, List<NationSummary> nations) {
+        this.turn = turn;
+        this.width = width;
+        this.height = height;
+        this.owners = owners;
+        this.development = development;
+        this.nationsById = nationsById;
+        this.nations = List.copyOf(nations);
+    }
+
+    /**
+     * Number of turns completed when the snapshot was taken.
+     */
+    public int getTurn() { return turn; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public long cellOf(int x, int y) { return (long) y * width + x; }
+    public int xOf(long cell) { return (int) (cell % width); }
+    public int yOf(long cell) { return (int) (cell / width); }
+
+    public int getOwnerId(long cell) {
+        checkCell(cell);
+        return owners[(int) (cell >>> CHUNK_SHIFT)][(int) (cell & CHUNK_MASK)];
+    }
+
+    /**
+     * Owner of the cell, or null when unowned.
+     */
+    public NationSummary getOwner(long cell) {
+        return nationsById[getOwnerId(cell)];
+    }
+
+    public int getDevelopment(long cell) {
+        checkCell(cell);
+        return development[(int) (cell >>> CHUNK_SHIFT)][(int) (cell & CHUNK_MASK)];
+    }
+
+    /**
+     * Nations still in the game, in turn order.
+     */
+    public List<NationSummary> getNations() { return nations; }
+
+    /**
+     * Highest owner id handed out so far; ids run from 1 to this value.
+     */
+    public int getMaxNationId() { return nationsById.length - 1; }
+
+    /**
+     * Summary for an owner id, including nations that have since been eliminated.
+     */
+    public NationSummary getNation(int id) {
+        if (id <= NO_OWNER || id >= nationsById.length) throw new IllegalArgumentException("unknown nation id: " + id);
+        return nationsById[id];
+    }
+
+    /**
+     * Cells whose owner or development differ from an older snapshot of the same game, in ascending
+     * order. Chunks shared between the two snapshots are skipped without looking at their cells.
+     */
+    public long[] changedSince(GameSnapshot older) {
+        if (older == null || older.width != width || older.height != height)
+            throw new IllegalArgumentException("snapshots of different maps");
+        long[] changed = new long[16];
+        int count = 0;
+        for (int chunk = 0; chunk < owners.length; chunk++) {
+            short[] ownerChunk = owners[chunk];
+            short[] olderOwnerChunk = older.owners[chunk];
+            byte[] developmentChunk = development[chunk];
+            byte[] olderDevelopmentChunk = older.development[chunk];
+            if (ownerChunk == olderOwnerChunk && developmentChunk == olderDevelopmentChunk) continue;
+            for (int i = 0; i < ownerChunk.length; i++) {
+                if (ownerChunk[i] == olderOwnerChunk[i] && developmentChunk[i] == olderDevelopmentChunk[i]) continue;
+                if (count == changed.length) changed = Arrays.copyOf(changed, count * 2);
+                changed[count++] = ((long) chunk << CHUNK_SHIFT) + i;
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    NationSummary[] nationsById() {
+        return nationsById.clone();
+    }
+
+    private void checkCell(long cell) {
+        if (cell < 0 || cell >= (long) width * height) throw new IndexOutOfBoundsException("cell " + cell);
+    }
+}
@@ -0,0 +1,55 @@
+package universalis.snapshot;
+
+import universalis.map.Nation;
+
+/**
+ * Read-only copy of a nation's standing at the end of a turn.
+ */
+public final class NationSummary {
+    private final int id;
+    private final String name;
+    private final String strategy;
+    private final int provinceCount;
+    private final int totalDevelopment;
+    private final int army;
+    private final int borderLength;
+
+    NationSummary(int id, Nation nation) {
+        this(id, nation.getName(),
+                nation.getStrategy() == null ? "none" : nation.getStrategy().getClass().getSimpleName(),
+                nation.getProvinceCount(), nation.getTotalDevelopment(), nation.getArmy(), nation.getBorderLength());
+    }
+
+    public NationSummary(int id, String name, String strategy, int provinceCount, int totalDevelopment, int army,
+            int borderLength) {
+        if (name == null) throw new IllegalArgumentException("name required");
+        this.id = id;
+        this.name = name;
+        this.strategy = strategy;
+        this.provinceCount = provinceCount;
+        this.totalDevelopment = totalDevelopment;
+        this.army = army;
+        this.borderLength = borderLength;
+    }
+
+    // what an eliminated nation looks like from then on
+    NationSummary eliminated() {
+        return new NationSummary(id, name, strategy, 0, 0, army, 0);
+    }
+
+    /**
+     * Owner id used by GameSnapshot cells; stable for the whole game.
+     */
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public String getStrategy() { return strategy; }
+    public int getProvinceCount() { return provinceCount; }
+    public int getTotalDevelopment() { return totalDevelopment; }
+    public int getArmy() { return army; }
+    public int getBorderLength() { return borderLength; }
+
+    @Override
+    public String toString() {
+        return name + " (" + provinceCount + ")";
+    }
+}
@@ -0,0 +1,127 @@
+package universalis.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Produces a chain of GameSnapshots by editing cells and nations between builds. A chunk is copied
+ * the first time it is written after a build, so every built snapshot stays immutable and shares
+ * all untouched chunks with its predecessor. Not thread-safe; the snapshots it builds are.
+ */
+public class SnapshotEditor {
+    private final int width;
+    private final int height;
+    private short[][] owners;
+    private byte[][] development;
+    private NationSummary[] nationsById = new NationSummary[1];
+    private List<NationSummary> nations = new ArrayList<>();
+
+    // chunks already copied since the last build
+    private final boolean[] copied;
+    private int[] copiedChunks = new int[16];
+    private int copiedCount;
+
+    /**
+     * Start from an empty map with no nations.
+     */
+    public SnapshotEditor(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("invalid dimensions");
+        this.width = width;
+        this.height = height;
+        long cells = (long) width * height;
+        int chunks = (int) ((cells + GameSnapshot.CHUNK_MASK) >>> GameSnapshot.CHUNK_SHIFT);
+        this.owners = new short[chunks][];
+        this.development = new byte[chunks][];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int length = (int) Math.min(GameSnapshot.CHUNK_SIZE, cells - ((long) chunk << GameSnapshot.CHUNK_SHIFT));
+            owners[chunk] = new short[length];
+            development[chunk] = new byte[length];
+        }
+        this.copied = new boolean[chunks];
+    }
+
+    /**
+     * Continue from an existing snapshot; the snapshot itself is never modified.
+     */
+    public SnapshotEditor(GameSnapshot base) {
+        this.width = base.getWidth();
+        this.height = base.getHeight();
+        this.owners = base.owners.clone();
+        this.development = base.development.clone();
+        this.nationsById = base.nationsById();
+        this.nations = new ArrayList<>(base.getNations());
+        this.copied = new boolean[owners.length];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public int getOwnerId(long cell) {
+        checkCell(cell);
+        return owners[(int) (cell >>> GameSnapshot.CHUNK_SHIFT)][(int) (cell & GameSnapshot.CHUNK_MASK)];
+    }
+
+    public int getDevelopment(long cell) {
+        checkCell(cell);
+        return development[(int) (cell >>> GameSnapshot.CHUNK_SHIFT)][(int) (cell & GameSnapshot.CHUNK_MASK)];
+    }
+
+    public void setCell(long cell, int ownerId, int development) {
+        checkCell(cell);
+        if (ownerId < GameSnapshot.NO_OWNER || ownerId > Short.MAX_VALUE) throw new IllegalArgumentException("invalid owner id: " + ownerId);
+        int chunk = (int) (cell >>> GameSnapshot.CHUNK_SHIFT);
+        int index = (int) (cell & GameSnapshot.CHUNK_MASK);
+        if (!copied[chunk]) {
+            copied[chunk] = true;
+            owners[chunk] = owners[chunk].clone();
+            this.development[chunk] = this.development[chunk].clone();
+            if (copiedCount == copiedChunks.length) copiedChunks = Arrays.copyOf(copiedChunks, copiedCount * 2);
+            copiedChunks[copiedCount++] = chunk;
+        }
+        owners[chunk][index] = (short) ownerId;
+        // development is capped well below a byte in play; clamp anything set directly by hand
+        this.development[chunk][index] = (byte) Math.max(0, Math.min(Byte.MAX_VALUE, development));
+    }
+
+    /**
+     * Summary for an owner id; null if the id has never been given one.
+     */
+    public NationSummary getNation(int id) {
+        return id > GameSnapshot.NO_OWNER && id < nationsById.length ? nationsById[id] : null;
+    }
+
+    /**
+     * Store or replace the summary for summary.getId(), without changing who is still playing.
+     */
+    public void putNation(NationSummary summary) {
+        int id = summary.getId();
+        if (id <= GameSnapshot.NO_OWNER || id > Short.MAX_VALUE) throw new IllegalArgumentException("invalid nation id: " + id);
+        if (id >= nationsById.length) nationsById = Arrays.copyOf(nationsById, id + 1);
+        nationsById[id] = summary;
+    }
+
+    /**
+     * The nations still playing, in turn order; each summary is also stored by id.
+     */
+    public void setNations(List<NationSummary> playing) {
+        for (NationSummary summary : playing)
+            putNation(summary);
+        this.nations = new ArrayList<>(playing);
+    }
+
+    public GameSnapshot build(int turn) {
+        GameSnapshot snapshot = new GameSnapshot(turn, width, height, owners, development, nationsById.clone(), nations);
+        // the snapshot owns these arrays now; later edits start from copies
+        owners = owners.clone();
+        development = development.clone();
+        for (int i = 0; i < copiedCount; i++)
+            copied[copiedChunks[i]] = false;
+        copiedCount = 0;
+        return snapshot;
+    }
+
+    private void checkCell(long cell) {
+        if (cell < 0 || cell >= (long) width * height) throw new IndexOutOfBoundsException("cell " + cell);
+    }
+}
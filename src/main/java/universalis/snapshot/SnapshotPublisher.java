@@ -0,0 +1,78 @@
+package universalis.snapshot;
+
+import universalis.map.Map;
+import universalis.map.Nation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Builds a GameSnapshot at the end of every turn from the cells the turn changed and publishes it
+ * for other threads. Only the game thread calls publish; readers call getLatest and never wait.
+ */
+public class SnapshotPublisher {
+    private final Map map;
+    private final SnapshotEditor editor;
+    private final java.util.Map<Nation, Integer> ids = new IdentityHashMap<>();
+    private List<NationSummary> playing = new ArrayList<>();
+
+    private volatile GameSnapshot latest;
+
+    public SnapshotPublisher(Map map, List<Nation> nations, int turn) {
+        this.map = map;
+        this.editor = new SnapshotEditor(map.getWidth(), map.getHeight());
+        for (long cell = 0; cell < (long) map.getWidth() * map.getHeight(); cell++)
+            editor.setCell(cell, idOf(map.getOwner(cell)), map.getDevelopment(cell));
+        summarize(nations);
+        latest = editor.build(turn);
+    }
+
+    /**
+     * The most recently published snapshot.
+     */
+    public GameSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Publish the state at the end of a turn; changedCells must cover every cell written since the
+     * previous publish.
+     */
+    public GameSnapshot publish(int turn, List<Nation> nations, long[] changedCells) {
+        for (long cell : changedCells)
+            editor.setCell(cell, idOf(map.getOwner(cell)), map.getDevelopment(cell));
+        summarize(nations);
+        GameSnapshot snapshot = editor.build(turn);
+        latest = snapshot;
+        return snapshot;
+    }
+
+    private void summarize(List<Nation> nations) {
+        List<NationSummary> alive = new ArrayList<>(nations.size());
+        for (Nation nation : nations)
+            alive.add(new NationSummary(idOf(nation), nation));
+        boolean[] stillPlaying = new boolean[ids.size() + 1];
+        for (NationSummary summary : alive)
+            stillPlaying[summary.getId()] = true;
+        // nations that dropped out keep their id with an empty record
+        for (NationSummary previous : playing)
+            if (!stillPlaying[previous.getId()])
+                editor.putNation(previous.eliminated());
+        editor.setNations(alive);
+        playing = alive;
+    }
+
+    // ids are stable for the whole game so untouched chunks stay valid across snapshots
+    private int idOf(Nation nation) {
+        if (nation == null) return GameSnapshot.NO_OWNER;
+        Integer id = ids.get(nation);
+        if (id == null) {
+            id = ids.size() + 1;
+            if (id > Short.MAX_VALUE) throw new IllegalStateException("too many nations for a snapshot");
+            ids.put(nation, id);
+            editor.putNation(new NationSummary(id, nation));
+        }
+        return id;
+    }
+}
@@ -4,20 +4,30 @@ import universalis.Universalis;
 import universalis.map.Nation;
 import universalis.map.Province;
 
+import java.util.List;
 import java.util.Random;
 
 public class DefensiveStrategy implements Strategy {
-    private final Random random = new Random();
-
     private static final double CHANCE_OF_INCREASING_DEVELOPMENT = 0.25;
     private static final int AMOUNT_TO_INCREASE_DEVELOPMENT = 1;
 
+    // each province independently has the chance above of developing
+    private static final double LOG_OF_MISS = Math.log(1 - CHANCE_OF_INCREASING_DEVELOPMENT);
+
     @Override
     public void execute(Nation self, Universalis game) {
         // defensive behavior: development increases
-        for (Province province : self.getProvinces()) {
-            if (random.nextDouble() < CHANCE_OF_INCREASING_DEVELOPMENT) province.changeDevelopment(AMOUNT_TO_INCREASE_DEVELOPMENT);
-        }
+        // instead of one roll per province, draw how many provinces to skip until the next one that
+        // develops: geometrically distributed, so the same odds for a quarter of the draws
+        Random random = self.getRandom();
+        List<Province> provinces = self.getProvinces();
+        for (int position = skip(random); position < provinces.size(); position += 1 + skip(random))
+            provinces.get(position).changeDevelopment(AMOUNT_TO_INCREASE_DEVELOPMENT);
+    }
+
+    private static int skip(Random random) {
+        // 1 - nextDouble() is in (0, 1], keeping the log finite
+        return (int) Math.min(Integer.MAX_VALUE, Math.log(1 - random.nextDouble()) / LOG_OF_MISS);
     }
 
     @Override
@@ -0,0 +1,146 @@
+package universalis.strategy;
+
+import universalis.map.Map;
+import universalis.map.Nation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-tile fields for choosing targets, built for the whole map in one multi-source breadth-first
+ * pass and then read in O(1) by every nation. The sources are all border tiles, owned tiles next to
+ * a tile with another owner or none, so each tile learns its distance to the nearest border and
+ * whose border that is. On the way each tile also gets:
+ * <ul>
+ * <li>pressure: the army of the nation with the nearest border, divided by one plus the distance,
+ * so a strong army next door weighs more than one far away;</li>
+ * <li>value: the development of the tile and its neighbors, what taking it and holding the area
+ * around it is worth.</li>
+ * </ul>
+ * Universalis rebuilds the fields at the start of every turn that has a nation using them, so they
+ * describe the map as it was before anyone moved. Arrays are reused from turn to turn.
+ */
+public class InfluenceMap {
+    private static final int UNREACHED = -1;
+
+    private int[] distance = new int[0];
+    private int[] nearest = new int[0];
+    private int[] pressure = new int[0];
+    private int[] value = new int[0];
+    // breadth-first queue of cells; every cell enters it at most once
+    private int[] queue = new int[0];
+    private Nation[] nations = new Nation[0];
+    private int turn = -1;
+
+    /**
+     * Recompute every field from the map and the nations' armies.
+     */
+    public void update(Map map, List<Nation> nationList, int turn) {
+        long cellCount = (long) map.getWidth() * map.getHeight();
+        if (cellCount > Integer.MAX_VALUE) throw new IllegalArgumentException("map too large for an influence map");
+        int cells = (int) cellCount;
+        if (distance.length != cells) {
+            distance = new int[cells];
+            nearest = new int[cells];
+            pressure = new int[cells];
+            value = new int[cells];
+            queue = new int[cells];
+        }
+        if (nations.length < nationList.size()) nations = new Nation[nationList.size()];
+        Arrays.fill(nations, null);
+        for (int i = 0; i < nationList.size(); i++)
+            nations[i] = nationList.get(i);
+        Arrays.fill(distance, UNREACHED);
+        Arrays.fill(nearest, UNREACHED);
+        Arrays.fill(pressure, 0);
+
+        int tail = 0;
+        Nation lastOwner = null;
+        int lastIndex = UNREACHED;
+        for (int cell = 0; cell < cells; cell++) {
+            Nation owner = map.getOwner(cell);
+            if (owner == null || !onBorder(map, cell, owner)) continue;
+            // border tiles of one nation tend to come in runs, so remember the last lookup
+            if (owner != lastOwner) {
+                lastOwner = owner;
+                lastIndex = indexOf(owner, nationList.size());
+            }
+            if (lastIndex == UNREACHED) continue;
+            distance[cell] = 0;
+            nearest[cell] = lastIndex;
+            queue[tail++] = cell;
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            pressure[cell] = nations[nearest[cell]].getArmy() / (distance[cell] + 1);
+            int total = map.getDevelopment(cell);
+            for (int i = 0, degree = map.degree(cell); i < degree; i++) {
+                int neighbor = (int) map.neighbor(cell, i);
+                total += map.getDevelopment(neighbor);
+                if (distance[neighbor] == UNREACHED) {
+                    distance[neighbor] = distance[cell] + 1;
+                    nearest[neighbor] = nearest[cell];
+                    queue[tail++] = neighbor;
+                }
+            }
+            value[cell] = total;
+        }
+
+        // tiles no border reaches, e.g. before anyone owns anything, still get a value
+        if (tail < cells) {
+            for (int cell = 0; cell < cells; cell++)
+                if (distance[cell] == UNREACHED) value[cell] = developmentAround(map, cell);
+        }
+        this.turn = turn;
+    }
+
+    private static int developmentAround(Map map, long cell) {
+        int total = map.getDevelopment(cell);
+        for (int i = 0, degree = map.degree(cell); i < degree; i++)
+            total += map.getDevelopment(map.neighbor(cell, i));
+        return total;
+    }
+
+    private static boolean onBorder(Map map, long cell, Nation owner) {
+        for (int i = 0, degree = map.degree(cell); i < degree; i++)
+            if (map.getOwner(map.neighbor(cell, i)) != owner) return true;
+        return false;
+    }
+
+    private int indexOf(Nation nation, int count) {
+        for (int i = 0; i < count; i++)
+            if (nations[i] == nation) return i;
+        return UNREACHED;
+    }
+
+    /**
+     * Completed turns of the game when the fields were built, -1 before the first update.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Steps from the tile to the nearest border tile, 0 on a border, -1 when no border reaches it.
+     */
+    public int distance(long cell) {
+        return distance[(int) cell];
+    }
+
+    /**
+     * Nation whose border is nearest to the tile, or null.
+     */
+    public Nation nearestNation(long cell) {
+        int index = nearest[(int) cell];
+        return index == UNREACHED ? null : nations[index];
+    }
+
+    public int pressure(long cell) {
+        return pressure[(int) cell];
+    }
+
+    public int value(long cell) {
+        return value[(int) cell];
+    }
+}
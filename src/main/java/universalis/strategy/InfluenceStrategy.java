@@ -0,0 +1,104 @@
+package universalis.strategy;
+
+import universalis.Universalis;
+import universalis.map.LongIndexSet;
+import universalis.map.Map;
+import universalis.map.Nation;
+
+/**
+ * Picks targets from the game's InfluenceMap instead of at random. It expands into the empty
+ * frontier tile with the most development around it, preferring tiles no other border is closer
+ * to. With nowhere to expand it attacks the most valuable enemy tile whose owner had a smaller army
+ * at the start of the turn, and otherwise develops like the defensive strategy. Every look-up is
+ * O(1), so a turn costs the size of the nation's frontier.
+ */
+public class InfluenceStrategy implements Strategy {
+    private static final Strategy DEVELOPMENT = new DefensiveStrategy();
+    // below this share of its cap the army holds back, as with takeTurn's switch to defensive
+    private static final double LOW_ARMY_SHARE = 0.2;
+    private static final long NONE = -1;
+
+    @Override
+    public void execute(Nation self, Universalis game) {
+        Order order = choose(self, game);
+        if (order == null)
+            develop(self, game);
+        else
+            self.carryOut(order, game.getMap());
+    }
+
+    @Override
+    public Order declare(Nation self, Universalis game) {
+        Order order = choose(self, game);
+        return order == null ? Order.develop(self) : order;
+    }
+
+    @Override
+    public void develop(Nation self, Universalis game) {
+        DEVELOPMENT.execute(self, game);
+    }
+
+    @Override
+    public boolean isSelfDirected() {
+        return true;
+    }
+
+    /**
+     * The tile move this strategy makes now, or null to develop instead.
+     */
+    public Order choose(Nation self, Universalis game) {
+        InfluenceMap influence = game.getInfluenceMap();
+        long target = bestExpansion(self, influence);
+        if (target != NONE)
+            return Order.expand(self, target);
+        if (self.getArmy() < LOW_ARMY_SHARE * self.armyCap())
+            return null;
+        target = bestAttack(self, game.getMap(), influence);
+        return target == NONE ? null : Order.attack(self, target);
+    }
+
+    private static long bestExpansion(Nation self, InfluenceMap influence) {
+        LongIndexSet emptyCells = self.getFrontier().getEmptyCells();
+        long best = NONE;
+        int bestValue = 0;
+        int bestContest = 0;
+        for (int i = 0; i < emptyCells.size(); i++) {
+            long cell = emptyCells.get(i);
+            int value = influence.value(cell);
+            // pressure only counts against us when it comes from someone else's border
+            int contest = influence.nearestNation(cell) == self ? 0 : influence.pressure(cell);
+            if (best == NONE || value > bestValue || (value == bestValue && contest < bestContest)) {
+                best = cell;
+                bestValue = value;
+                bestContest = contest;
+            }
+        }
+        return best;
+    }
+
+    private static long bestAttack(Nation self, Map map, InfluenceMap influence) {
+        LongIndexSet enemyCells = self.getFrontier().getEnemyCells();
+        long best = NONE;
+        int bestValue = 0;
+        int bestPressure = 0;
+        for (int i = 0; i < enemyCells.size(); i++) {
+            long cell = enemyCells.get(i);
+            Nation owner = map.getOwner(cell);
+            // enemy frontier tiles are border tiles, so their pressure is the owner's army
+            int pressure = influence.pressure(cell);
+            if (owner == null || owner == self || pressure >= self.getArmy()) continue;
+            int value = influence.value(cell);
+            if (best == NONE || value > bestValue || (value == bestValue && pressure < bestPressure)) {
+                best = cell;
+                bestValue = value;
+                bestPressure = pressure;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return "Influence Strategy";
+    }
+}
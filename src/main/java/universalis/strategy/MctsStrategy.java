@@ -0,0 +1,303 @@
+package universalis.strategy;
+
+import universalis.Universalis;
+import universalis.map.GameFork;
+import universalis.map.LongIndexSet;
+import universalis.map.Map;
+import universalis.map.Nation;
+import universalis.random.SplitMixRandom;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Looks a few turns ahead with Monte-Carlo tree search before committing to a move. Every tile of
+ * the frontier, plus holding still, is a candidate; the search plays simulated turns on GameForks,
+ * in which this nation moves as the tree directs and everyone else as expandOrAttack would, and
+ * scores each line by this nation's share of owned tiles at the end. The move visited most wins.
+ * <p>
+ * Searches run on several workers at once, each with its own tree and random stream split from one
+ * draw of the nation's stream, and their root statistics are added up. Each worker stops at its
+ * share of the iterations or when the time budget runs out, whichever comes first; only when the
+ * iteration limit is what stops it is the result the same on every run.
+ * <p>
+ * Simulated turns let this nation move first and skip the development phase, and opponents pick
+ * targets through GameFork.pickTarget, so the lookahead is an approximation of the real game.
+ */
+public class MctsStrategy implements Strategy {
+    private static final Strategy DEVELOPMENT = new DefensiveStrategy();
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final long HOLD = GameFork.NONE;
+    // candidates considered at the root, and sampled at deeper nodes
+    private static final int MAX_ROOT_ACTIONS = 32;
+    private static final int MAX_NODE_ACTIONS = 6;
+
+    private static final Duration DEFAULT_BUDGET = Duration.ofMillis(20);
+    private static final int DEFAULT_ITERATIONS = 400;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_WORKERS = 4;
+
+    private final Duration budget;
+    private final int iterations;
+    private final int depth;
+    private final int workers;
+
+    public MctsStrategy() {
+        this(DEFAULT_BUDGET, DEFAULT_ITERATIONS, DEFAULT_DEPTH, DEFAULT_WORKERS);
+    }
+
+    /**
+     * @param budget     longest time one decision may take
+     * @param iterations most simulations per decision, shared between the workers
+     * @param depth      simulated turns per line, including the move being chosen
+     * @param workers    searches run in parallel on the common ForkJoinPool
+     */
+    public MctsStrategy(Duration budget, int iterations, int depth, int workers) {
+        if (budget == null || budget.isNegative() || budget.isZero())
+            throw new IllegalArgumentException("positive budget required");
+        if (iterations <= 0 || depth <= 0 || workers <= 0)
+            throw new IllegalArgumentException("iterations, depth and workers must be > 0");
+        this.budget = budget;
+        this.iterations = iterations;
+        this.depth = depth;
+        this.workers = workers;
+    }
+
+    public Duration getBudget() { return budget; }
+    public int getIterations() { return iterations; }
+    public int getDepth() { return depth; }
+    public int getWorkers() { return workers; }
+
+    @Override
+    public void execute(Nation self, Universalis game) {
+        Order order = choose(self, game);
+        if (order == null)
+            develop(self, game);
+        else
+            self.carryOut(order, game.getMap());
+    }
+
+    @Override
+    public Order declare(Nation self, Universalis game) {
+        Order order = choose(self, game);
+        return order == null ? Order.develop(self) : order;
+    }
+
+    @Override
+    public void develop(Nation self, Universalis game) {
+        DEVELOPMENT.execute(self, game);
+    }
+
+    @Override
+    public boolean isSelfDirected() {
+        return true;
+    }
+
+    @Override
+    public boolean readsBeyondFrontier() {
+        return true;
+    }
+
+    /**
+     * The move the search settles on, or null to hold and develop.
+     */
+    public Order choose(Nation self, Universalis game) {
+        Map map = game.getMap();
+        GameFork root = GameFork.of(map, game.getNations());
+        int me = root.indexOf(self);
+        if (me == GameFork.NO_OWNER)
+            return null;
+        SplitMixRandom random = new SplitMixRandom(self.getRandom().nextLong());
+        long[] actions = rootActions(self, random);
+        if (actions.length == 1)
+            return null;
+
+        long deadline = System.nanoTime() + budget.toNanos();
+        Search[] searches = new Search[workers];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            Search search = new Search(root, me, actions, random.split(), depth);
+            int share = iterations / workers + (w < iterations % workers ? 1 : 0);
+            searches[w] = search;
+            tasks.add(ForkJoinTask.adapt(() -> search.run(share, deadline)));
+        }
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        int best = 0;
+        long bestVisits = -1;
+        for (int a = 0; a < actions.length; a++) {
+            long visits = 0;
+            for (Search search : searches)
+                visits += search.rootVisits(actions[a]);
+            if (visits > bestVisits) {
+                best = a;
+                bestVisits = visits;
+            }
+        }
+        long target = actions[best];
+        if (target == HOLD)
+            return null;
+        return map.getOwner(target) == null ? Order.expand(self, target) : Order.attack(self, target);
+    }
+
+    // holding still, then the live frontier; a random sample of it when it is large
+    private static long[] rootActions(Nation self, Random random) {
+        LongIndexSet emptyCells = self.getFrontier().getEmptyCells();
+        LongIndexSet enemyCells = self.getFrontier().getEnemyCells();
+        int frontier = emptyCells.size() + enemyCells.size();
+        long[] cells = new long[frontier];
+        for (int i = 0; i < emptyCells.size(); i++)
+            cells[i] = emptyCells.get(i);
+        for (int i = 0; i < enemyCells.size(); i++)
+            cells[emptyCells.size() + i] = enemyCells.get(i);
+        int count = Math.min(frontier, MAX_ROOT_ACTIONS - 1);
+        // partial Fisher-Yates: the first count entries become a uniform sample
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(frontier - i);
+            long swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+        long[] actions = new long[count + 1];
+        actions[0] = HOLD;
+        System.arraycopy(cells, 0, actions, 1, count);
+        return actions;
+    }
+
+    /**
+     * One worker's tree. Nodes hold the fork reached by the moves leading to them.
+     */
+    private static final class Search {
+        private final int me;
+        private final Random random;
+        private final int depth;
+        private final Node root;
+
+        Search(GameFork state, int me, long[] actions, Random random, int depth) {
+            this.me = me;
+            this.random = random;
+            this.depth = depth;
+            this.root = new Node(null, HOLD, state, 0, actions.clone());
+        }
+
+        void run(int iterations, long deadline) {
+            for (int i = 0; i < iterations && System.nanoTime() < deadline; i++)
+                iterate();
+        }
+
+        long rootVisits(long action) {
+            for (Node child : root.children)
+                if (child.action == action) return child.visits;
+            return 0;
+        }
+
+        private void iterate() {
+            Node node = root;
+            while (node.untried == 0 && !node.children.isEmpty())
+                node = node.select();
+            if (node.untried > 0 && node.depth < depth)
+                node = expand(node);
+
+            GameFork rollout = node.state.fork();
+            for (int turn = node.depth; turn < depth; turn++)
+                playTurn(rollout, rollout.pickTarget(me, random));
+            double reward = rollout.provinceShare(me);
+
+            for (Node visited = node; visited != null; visited = visited.parent) {
+                visited.visits++;
+                visited.reward += reward;
+            }
+        }
+
+        private Node expand(Node node) {
+            // take a random untried action, moving it behind the untried ones
+            int pick = random.nextInt(node.untried);
+            int last = --node.untried;
+            long action = node.actions[pick];
+            node.actions[pick] = node.actions[last];
+            node.actions[last] = action;
+
+            GameFork state = node.state.fork();
+            playTurn(state, action);
+            Node child = new Node(node, action, state, node.depth + 1, sampleActions(state));
+            node.children.add(child);
+            return child;
+        }
+
+        private void playTurn(GameFork state, long action) {
+            if (action != HOLD)
+                state.expandOrAttack(me, action);
+            for (int nation = 0; nation < state.nationCount(); nation++) {
+                if (nation == me || state.provinces(nation) == 0) continue;
+                long target = state.pickTarget(nation, random);
+                if (target != GameFork.NONE) state.expandOrAttack(nation, target);
+            }
+            state.growArmies();
+        }
+
+        private long[] sampleActions(GameFork state) {
+            long[] actions = new long[MAX_NODE_ACTIONS];
+            int count = 0;
+            actions[count++] = HOLD;
+            for (int attempt = 0; attempt < MAX_NODE_ACTIONS * 2 && count < MAX_NODE_ACTIONS; attempt++) {
+                long target = state.pickTarget(me, random);
+                if (target != GameFork.NONE && indexOf(actions, count, target) < 0)
+                    actions[count++] = target;
+            }
+            return Arrays.copyOf(actions, count);
+        }
+
+        private static int indexOf(long[] actions, int count, long action) {
+            for (int i = 0; i < count; i++)
+                if (actions[i] == action) return i;
+            return -1;
+        }
+    }
+
+    private static final class Node {
+        final Node parent;
+        final long action;
+        final GameFork state;
+        final int depth;
+        // actions[0, untried) are still to be tried
+        final long[] actions;
+        int untried;
+        final List<Node> children = new ArrayList<>();
+        long visits;
+        double reward;
+
+        Node(Node parent, long action, GameFork state, int depth, long[] actions) {
+            this.parent = parent;
+            this.action = action;
+            this.state = state;
+            this.depth = depth;
+            this.actions = actions;
+            this.untried = actions.length;
+        }
+
+        // UCB1: average reward plus a bonus for rarely visited children
+        Node select() {
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(visits);
+            for (Node child : children) {
+                double score = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (score > bestScore) {
+                    best = child;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MCTS Strategy";
+    }
+}
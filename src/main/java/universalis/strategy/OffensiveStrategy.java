@@ -6,13 +6,24 @@ import universalis.map.Nation;
 import java.util.Random;
 
 public class OffensiveStrategy implements Strategy {
-    private static Random random = new Random();
-    public OffensiveStrategy(Random random) { OffensiveStrategy.random = random; }
-    public OffensiveStrategy() { random = new Random(); }
+    // null means draw from the acting nation's own stream
+    private final Random random;
+    public OffensiveStrategy(Random random) { this.random = random; }
+    public OffensiveStrategy() { this(null); }
+
+    /**
+     * The strategy's own Random, or null when it draws from the acting nation's stream.
+     */
+    public Random getRandom() { return random; }
 
     @Override
     public void execute(Nation self, Universalis game) {
-        self.expandOrAttack(game, random);
+        self.expandOrAttack(game, random == null ? self.getRandom() : random);
+    }
+
+    @Override
+    public Order declare(Nation self, Universalis game) {
+        return self.declareExpandOrAttack(random == null ? self.getRandom() : random);
     }
 
     @Override
@@ -0,0 +1,67 @@
+package universalis.strategy;
+
+import universalis.map.Nation;
+
+/**
+ * A move declared for a simultaneous turn. EXPAND and ATTACK name a tile and are settled against
+ * every other move on that tile; DEVELOP leaves the map alone and runs the strategy's develop on
+ * the nation's own provinces once all tile moves are settled. The army is the nation's army when
+ * it declared, which decides contested tiles.
+ */
+public final class Order {
+    public enum Type { EXPAND, ATTACK, DEVELOP }
+
+    private final Nation nation;
+    private final Type type;
+    private final long cell;
+    private final int army;
+
+    private Order(Nation nation, Type type, long cell) {
+        if (nation == null)
+            throw new IllegalArgumentException("nation required");
+        this.nation = nation;
+        this.type = type;
+        this.cell = cell;
+        this.army = nation.getArmy();
+    }
+
+    public static Order expand(Nation nation, long cell) {
+        return new Order(nation, Type.EXPAND, cell);
+    }
+
+    public static Order attack(Nation nation, long cell) {
+        return new Order(nation, Type.ATTACK, cell);
+    }
+
+    public static Order develop(Nation nation) {
+        return new Order(nation, Type.DEVELOP, -1);
+    }
+
+    public Nation getNation() {
+        return nation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Target tile, or -1 for DEVELOP.
+     */
+    public long getCell() {
+        return cell;
+    }
+
+    public int getArmy() {
+        return army;
+    }
+
+    public boolean targetsTile() {
+        return type != Type.DEVELOP;
+    }
+
+    @Override
+    public String toString() {
+        return type + (targetsTile() ? " " + cell : "") + " by " + nation.getName();
+    }
+}
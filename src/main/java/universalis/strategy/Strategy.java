@@ -5,4 +5,38 @@ import universalis.map.Nation;
 
 public interface Strategy {
     void execute(Nation self, Universalis game);
+
+    /**
+     * Simultaneous turns: choose this turn's move without changing anything, while every nation
+     * declares at once against the map as it stood at the start of the turn. Null means no move.
+     * The default declares DEVELOP, so execute runs during resolution; that is only right for
+     * strategies that touch nothing but the nation's own provinces.
+     */
+    default Order declare(Nation self, Universalis game) {
+        return Order.develop(self);
+    }
+
+    /**
+     * Carry out a DEVELOP order after all tile moves of a simultaneous turn are settled. Must only
+     * touch the nation's own provinces.
+     */
+    default void develop(Nation self, Universalis game) {
+        execute(self, game);
+    }
+
+    /**
+     * True when the strategy weighs expanding, attacking and developing itself, so takeTurn keeps
+     * it instead of switching between Defensive and Offensive by army and frontier.
+     */
+    default boolean isSelfDirected() {
+        return false;
+    }
+
+    /**
+     * True when choosing a move reads the game beyond the nation's frontier, such as other nations'
+     * frontiers; parallel turns then run the nation with nobody else at the same time.
+     */
+    default boolean readsBeyondFrontier() {
+        return false;
+    }
 }
@@ -1,24 +1,61 @@
 package universalis.ui;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
-import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import universalis.Universalis;
 import universalis.events.GameEvent;
 import universalis.events.GameEventBus;
-import universalis.map.Map;
-import universalis.map.Nation;
-import universalis.map.Province;
+import universalis.replay.ReplayPlayer;
+import universalis.replay.ReplayReader;
+import universalis.replay.ReplayRecorder;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.NationSummary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
 
 public class GameApplication extends Application {
     private static final int TILE_SIZE = 20;
+    private static final int MAX_MAP_PIXELS = 800;
+    private static final int LEGEND_WIDTH = 200;
+    private static final int MIN_CANVAS_HEIGHT = 400;
+    private static final int EMPTY_ARGB = 0xFFD3D3D3; // Color.LIGHTGRAY
+    private static final int BORDER_ARGB = 0xFF000000;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
     private Canvas canvas;
-    private Universalis gameInstance;
+
+    // map pixels live in an image; only tiles that differ from the last drawn snapshot are repainted
+    private WritableImage mapImage;
+    private int tilePixels;
+    private int[] tileBuffer;
+    private final java.util.Map<String, Color> nationColors = new HashMap<>();
+
+    // written by the game thread, read once per frame by the render loop; the UI never touches live game state
+    private volatile GameSnapshot latestSnapshot;
+    private volatile boolean gameFinished;
+
+    // render loop bookkeeping, FX thread only
+    private GameSnapshot drawnSnapshot;
+    private long windowStart;
+    private long windowTurns;
+    private long windowFrames;
+    private String rateText = "";
+    // replay mode: the status line replaces the live rate and can change while the map does not
+    private ReplayPlayer replay;
+    private boolean legendStale;
 
     @Override
     public void start(Stage primaryStage) {
@@ -31,80 +68,224 @@ public class GameApplication extends Application {
         primaryStage.setScene(scene);
         primaryStage.show();
 
+        // --replay=file plays a recording instead of a live game, at --speed turns per second
+        String replayFile = getParameters().getNamed().get("replay");
+        if (replayFile != null) {
+            double speed = Double.parseDouble(getParameters().getNamed().getOrDefault("speed", "20"));
+            startReplay(scene, Path.of(replayFile), speed);
+            return;
+        }
+
         GameEventBus.getInstance().subscribe(this::onGameEvent);
 
+        // optional --size=N --nations=N --delay=ms to try bigger maps or full-speed runs,
+        // --record=file to save a replay of the game
+        int size = Integer.parseInt(getParameters().getNamed().getOrDefault("size", "40"));
+        int nations = Integer.parseInt(getParameters().getNamed().getOrDefault("nations", "10"));
+        int delay = Integer.parseInt(getParameters().getNamed().getOrDefault("delay", "50"));
+        String recordFile = getParameters().getNamed().get("record");
+
+        // draw at most once per frame, always from the newest turn; turns in between are skipped
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                renderFrame(now, this);
+            }
+        }.start();
+
         // Start the game in a separate thread
         new Thread(() -> {
-            Universalis game = Universalis.setupDefaultGame(40, 10);
-            game.setTurnDelay(50);
-            game.playToCompletion();
+            Universalis game = Universalis.setupDefaultGame(size, nations);
+            game.setSnapshotPublishing(true);
+            latestSnapshot = game.getSnapshot();
+            game.setTurnDelay(delay);
+            // a replay that cannot be started costs the recording, not the game
+            ReplayRecorder recorder = null;
+            if (recordFile != null) {
+                try {
+                    recorder = ReplayRecorder.start(game, Path.of(recordFile), ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL);
+                } catch (IOException e) {
+                    System.err.println("Cannot record the replay to " + recordFile + ": " + e.getMessage());
+                }
+            }
+            try {
+                game.playToCompletion();
+            } finally {
+                if (recorder != null)
+                    closeRecorder(recorder);
+            }
         }).start();
     }
 
-    private void onGameEvent(GameEvent event) {
-        this.gameInstance = event.getGameInstance();
-        if (event.getType() == GameEvent.Type.TURN_COMPLETED) {
-            Platform.runLater(this::drawMap);
-        } else if (event.getType() == GameEvent.Type.GAME_FINISHED) {
-            Platform.runLater(() -> {
-                drawMap();
-                drawGameOver();
-            });
+    private static void closeRecorder(ReplayRecorder recorder) {
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Recording the replay failed: " + e.getMessage());
         }
     }
 
-    private void drawMap() {
-        if (gameInstance == null)
+    // space pauses, left/right pick the direction, up/down double or halve the speed, home/end jump
+    private void startReplay(Scene scene, Path file, double speed) {
+        try {
+            replay = new ReplayPlayer(ReplayReader.open(file), speed);
+        } catch (IOException e) {
+            System.err.println("Cannot open replay " + file + ": " + e.getMessage());
             return;
-        Map map = gameInstance.getMap();
-        int width = map.getWidth();
-        int height = map.getHeight();
+        }
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            switch (event.getCode()) {
+                case SPACE -> replay.setPaused(!replay.isPaused());
+                case RIGHT -> replay.setSpeed(Math.abs(replay.getSpeed()));
+                case LEFT -> replay.setSpeed(-Math.abs(replay.getSpeed()));
+                case UP -> replay.setSpeed(replay.getSpeed() * 2);
+                case DOWN -> replay.setSpeed(replay.getSpeed() / 2);
+                case HOME -> replay.jumpTo(replay.getReader().getFirstTurn());
+                case END -> replay.jumpTo(replay.getReader().getLastTurn());
+                default -> { }
+            }
+            legendStale = true;
+        });
+
+        new AnimationTimer() {
+            private long lastFrame;
+
+            @Override
+            public void handle(long now) {
+                long elapsed = lastFrame == 0 ? 0 : now - lastFrame;
+                lastFrame = now;
+                try {
+                    latestSnapshot = replay.advance(elapsed);
+                } catch (IOException e) {
+                    System.err.println("Replay failed: " + e.getMessage());
+                    stop();
+                    return;
+                }
+                String status = String.format("of %d, %.1f turns/s%s", replay.getReader().getLastTurn(), replay.getSpeed(),
+                        replay.isPaused() ? " (paused)" : "");
+                legendStale |= !status.equals(rateText);
+                rateText = status;
+                renderFrame(now, this);
+            }
+        }.start();
+    }
 
-        int mapPixelWidth = width * TILE_SIZE;
-        int mapPixelHeight = height * TILE_SIZE;
-        int legendWidth = 200;
+    // runs on the game thread: only hand over the snapshot, never touch the scene graph
+    private void onGameEvent(GameEvent event) {
+        if (event.getSnapshot() != null)
+            latestSnapshot = event.getSnapshot();
+        if (event.getType() == GameEvent.Type.GAME_FINISHED)
+            gameFinished = true;
+    }
+
+    private void renderFrame(long now, AnimationTimer timer) {
+        // read the flag first: the final snapshot is handed over before the game is marked finished
+        boolean finished = gameFinished;
+        GameSnapshot snapshot = latestSnapshot;
+        if (windowStart == 0)
+            windowStart = now;
+
+        if (snapshot != null && (snapshot != drawnSnapshot || finished || legendStale)) {
+            legendStale = false;
+            windowTurns += snapshot.getTurn() - (drawnSnapshot == null ? 0 : drawnSnapshot.getTurn());
+            windowFrames++;
+            drawMap(snapshot);
+            drawnSnapshot = snapshot;
+            if (finished) {
+                drawGameOver(snapshot);
+                timer.stop();
+                return;
+            }
+        }
+
+        if (replay == null && now - windowStart >= NANOS_PER_SECOND) {
+            double seconds = (double) (now - windowStart) / NANOS_PER_SECOND;
+            long dropped = Math.max(0, windowTurns - windowFrames);
+            rateText = String.format("%.0f turns/s, %.0f dropped/s", windowTurns / seconds, dropped / seconds);
+            windowStart = now;
+            windowTurns = 0;
+            windowFrames = 0;
+        }
+    }
+
+    private void drawMap(GameSnapshot snapshot) {
+        int width = snapshot.getWidth();
+        int height = snapshot.getHeight();
+        boolean repaintAll = drawnSnapshot == null;
+
+        if (mapImage == null || mapImage.getWidth() != width * tilePixels || mapImage.getHeight() != height * tilePixels) {
+            // big maps shrink their tiles so the whole map fits, down to one pixel per tile
+            tilePixels = Math.max(1, Math.min(TILE_SIZE, MAX_MAP_PIXELS / Math.max(width, height)));
+            mapImage = new WritableImage(width * tilePixels, height * tilePixels);
+            tileBuffer = new int[tilePixels * tilePixels];
+            repaintAll = true;
+        }
+
+        int mapPixelWidth = width * tilePixels;
+        int mapPixelHeight = height * tilePixels;
 
         // Resize canvas if needed (map + legend)
-        if (canvas.getWidth() != mapPixelWidth + legendWidth || canvas.getHeight() != Math.max(mapPixelHeight, 400)) {
-            canvas.setWidth(mapPixelWidth + legendWidth);
-            canvas.setHeight(Math.max(mapPixelHeight, 400));
+        if (canvas.getWidth() != mapPixelWidth + LEGEND_WIDTH || canvas.getHeight() != Math.max(mapPixelHeight, MIN_CANVAS_HEIGHT)) {
+            canvas.setWidth(mapPixelWidth + LEGEND_WIDTH);
+            canvas.setHeight(Math.max(mapPixelHeight, MIN_CANVAS_HEIGHT));
         }
 
+        patchMapImage(snapshot, repaintAll);
+
         GraphicsContext gc = canvas.getGraphicsContext2D();
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.drawImage(mapImage, 0, 0);
+        if (tilePixels == TILE_SIZE)
+            drawLabels(gc, snapshot);
 
-        // Draw Map
-        gc.setFont(new javafx.scene.text.Font("Arial", 10));
-        gc.setTextAlign(javafx.scene.text.TextAlignment.CENTER);
-        gc.setTextBaseline(javafx.geometry.VPos.CENTER);
+        // Draw Legend
+        drawLegend(gc, snapshot, mapPixelWidth, LEGEND_WIDTH);
+    }
 
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                Province province = map.getProvince(col, row);
-                Nation owner = province.getOwner();
+    private void patchMapImage(GameSnapshot snapshot, boolean repaintAll) {
+        PixelWriter writer = mapImage.getPixelWriter();
+        if (repaintAll) {
+            for (int row = 0; row < snapshot.getHeight(); row++)
+                for (int col = 0; col < snapshot.getWidth(); col++)
+                    paintTile(writer, snapshot, snapshot.cellOf(col, row));
+            return;
+        }
+        for (long cell : snapshot.changedSince(drawnSnapshot))
+            paintTile(writer, snapshot, cell);
+    }
 
-                if (owner != null) {
-                    gc.setFill(getColorForNation(owner.getName()));
-                } else {
-                    gc.setFill(Color.LIGHTGRAY);
-                }
-                gc.fillRect(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-                gc.setStroke(Color.BLACK);
-                gc.strokeRect(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    private void paintTile(PixelWriter writer, GameSnapshot snapshot, long cell) {
+        NationSummary owner = snapshot.getOwner(cell);
+        int fill = owner == null ? EMPTY_ARGB : argbForNation(owner);
+        boolean outlined = tilePixels >= 4;
+        for (int y = 0; y < tilePixels; y++) {
+            for (int x = 0; x < tilePixels; x++) {
+                boolean edge = x == 0 || y == 0 || x == tilePixels - 1 || y == tilePixels - 1;
+                tileBuffer[y * tilePixels + x] = outlined && edge ? BORDER_ARGB : fill;
+            }
+        }
+        writer.setPixels(snapshot.xOf(cell) * tilePixels, snapshot.yOf(cell) * tilePixels, tilePixels, tilePixels,
+                PixelFormat.getIntArgbInstance(), tileBuffer, 0, tilePixels);
+    }
 
+    // nation initials, only drawn while tiles are full size
+    private void drawLabels(GraphicsContext gc, GameSnapshot snapshot) {
+        gc.setFill(Color.BLACK); // Text color
+        gc.setFont(new javafx.scene.text.Font("Arial", 10));
+        gc.setTextAlign(javafx.scene.text.TextAlignment.CENTER);
+        gc.setTextBaseline(javafx.geometry.VPos.CENTER);
+        for (int row = 0; row < snapshot.getHeight(); row++) {
+            for (int col = 0; col < snapshot.getWidth(); col++) {
+                NationSummary owner = snapshot.getOwner(snapshot.cellOf(col, row));
                 if (owner != null) {
-                    gc.setFill(Color.BLACK); // Text color
                     String label = owner.getName().substring(0, 1);
                     gc.fillText(label, col * TILE_SIZE + TILE_SIZE / 2.0, row * TILE_SIZE + TILE_SIZE / 2.0);
                 }
             }
         }
-
-        // Draw Legend
-        drawLegend(gc, mapPixelWidth, legendWidth);
     }
 
-    private void drawLegend(GraphicsContext gc, int xOffset, int width) {
+    private void drawLegend(GraphicsContext gc, GameSnapshot snapshot, int xOffset, int width) {
         gc.setFill(Color.WHITESMOKE);
         gc.fillRect(xOffset, 0, width, canvas.getHeight());
 
@@ -114,8 +295,11 @@ public class GameApplication extends Application {
         gc.setTextBaseline(javafx.geometry.VPos.TOP);
         gc.fillText("Legend", xOffset + 10, 10);
 
-        int y = 40;
-        for (Nation nation : gameInstance.getNations()) {
+        gc.setFont(new javafx.scene.text.Font("Arial", 11));
+        gc.fillText("Turn " + snapshot.getTurn() + "  " + rateText, xOffset + 10, 28);
+
+        int y = 48;
+        for (NationSummary nation : snapshot.getNations()) {
             // Color box
             gc.setFill(getColorForNation(nation.getName()));
             gc.fillRect(xOffset + 10, y, 15, 15);
@@ -132,8 +316,8 @@ public class GameApplication extends Application {
         }
     }
 
-    private void drawGameOver() {
-        if (gameInstance == null || canvas == null)
+    private void drawGameOver(GameSnapshot snapshot) {
+        if (canvas == null)
             return;
         GraphicsContext gc = canvas.getGraphicsContext2D();
 
@@ -148,8 +332,9 @@ public class GameApplication extends Application {
         gc.setTextBaseline(javafx.geometry.VPos.CENTER);
 
         String message = "Game Over";
-        if (!gameInstance.getNations().isEmpty()) {
-            Nation winner = gameInstance.getNations().getFirst();
+        List<NationSummary> nations = snapshot.getNations();
+        if (!nations.isEmpty()) {
+            NationSummary winner = nations.getFirst();
             message += "\nWinner: " + winner.getName();
             message += "\nProvinces: " + winner.getProvinceCount();
             message += "\nDevelopment: " + winner.getTotalDevelopment();
@@ -161,11 +346,17 @@ public class GameApplication extends Application {
     }
 
     private Color getColorForNation(String name) {
-        int hash = name.hashCode();
-        int r = (hash & 0xFF0000) >> 16;
-        int g = (hash & 0x00FF00) >> 8;
-        int b = (hash & 0x0000FF);
-        return Color.rgb(r, g, b);
+        return nationColors.computeIfAbsent(name, key -> {
+            int hash = key.hashCode();
+            int r = (hash & 0xFF0000) >> 16;
+            int g = (hash & 0x00FF00) >> 8;
+            int b = (hash & 0x0000FF);
+            return Color.rgb(r, g, b);
+        });
+    }
+
+    private int argbForNation(NationSummary nation) {
+        return 0xFF000000 | (nation.getName().hashCode() & 0xFFFFFF);
     }
 
     public static void main(String[] args) {
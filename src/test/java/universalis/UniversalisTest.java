@@ -2,21 +2,36 @@ package universalis;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import universalis.events.GameEventBus;
 import universalis.map.Map;
 import universalis.map.Nation;
 import universalis.map.Province;
 import universalis.map.factory.NationFactory;
+import universalis.metrics.TurnMetrics;
+import universalis.random.RandomStreams;
+import universalis.report.QuietReporter;
 import universalis.strategy.DefensiveStrategy;
+import universalis.strategy.MctsStrategy;
 import universalis.strategy.NoOpStrategy;
 import universalis.strategy.OffensiveStrategy;
+import universalis.strategy.Strategy;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static universalis.map.factory.NationFactory.clearUsedNamesForTests;
 
 public class UniversalisTest {
@@ -137,6 +152,322 @@ public class UniversalisTest {
                 "Expected either a winner message or stalemate message in output.");
     }
 
+    @Test
+    public void frozenBordersEndTheGameEarly() {
+        List<Nation> nations = List.of(new Nation("A", new Holding(-1)), new Nation("B", new Holding(-1)));
+        Map map = new Map.Builder(new Random(3)).create(6).seedNations(nations).build();
+        Universalis game = new Universalis(map, nations, new RandomStreams(3L));
+        game.setReporter(new QuietReporter());
+
+        GameResult result = game.playToCompletion();
+        assertTrue(result.isStalemate());
+        assertTrue(result.getTurns() < 50, "took " + result.getTurns() + " turns");
+    }
+
+    @Test
+    public void provincesChangingHandsInACycleEndTheGameEarly() {
+        Nation flipping = new Nation("A", null);
+        List<Nation> nations = List.of(flipping, new Nation("B", new Holding(-1)));
+        Map map = new Map.Builder(new Random(3)).create(6).seedNations(nations).build();
+        long empty = 0;
+        while (map.getOwner(empty) != null)
+            empty++;
+        flipping.setStrategy(new Holding(empty));
+        Universalis game = new Universalis(map, nations, new RandomStreams(3L));
+        game.setReporter(new QuietReporter());
+
+        GameResult result = game.playToCompletion();
+        assertTrue(result.isStalemate());
+        assertTrue(result.getTurns() < 50, "took " + result.getTurns() + " turns");
+        game.verifyAggregates();
+    }
+
+    @Test
+    public void parallelTurnsMatchSequentialTurns() {
+        Universalis sequential = seededGame(30, 24, 99L);
+        Universalis parallel = seededGame(30, 24, 99L);
+        parallel.setTurnMode(Universalis.TurnMode.PARALLEL);
+
+        for (int turn = 0; turn < 40; turn++) {
+            sequential.runTurns(1);
+            parallel.runTurns(1);
+            assertSameState(sequential, parallel);
+        }
+    }
+
+    @Test
+    public void simultaneousTurnsDoNotDependOnThreads() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            Universalis first = seededGame(30, 24, 99L);
+            Universalis second = seededGame(30, 24, 99L);
+            first.setTurnMode(Universalis.TurnMode.SIMULTANEOUS, single);
+            second.setTurnMode(Universalis.TurnMode.SIMULTANEOUS, many);
+
+            for (int turn = 0; turn < 40; turn++) {
+                first.runTurns(1);
+                second.runTurns(1);
+                assertSameState(first, second);
+            }
+            second.verifyAggregates();
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    public void simultaneousTurnsSettleContestedTilesByArmy() {
+        Map map = new Map.Builder(new Random(5)).createNonSquare(3, 1).build();
+        Nation west = new Nation("West", new NoOpStrategy());
+        Nation east = new Nation("East", new NoOpStrategy());
+        map.setProvince(0, 0, new Province(2));
+        map.setProvince(1, 0, new Province(1));
+        map.setProvince(2, 0, new Province(2));
+        map.getProvince(0, 0).setOwner(west);
+        west.addProvinceToNationOnSetup(map.getProvince(0, 0));
+        map.getProvince(2, 0).setOwner(east);
+        east.addProvinceToNationOnSetup(map.getProvince(2, 0));
+        west.setArmy(4);
+        east.setArmy(4);
+
+        Universalis game = new Universalis(map, new ArrayList<>(List.of(west, east)), new Random(5));
+        game.setTurnMode(Universalis.TurnMode.SIMULTANEOUS);
+
+        // both want the middle tile with the same army: neither gets it, whatever the list order
+        game.runTurns(1);
+        assertNull(map.getProvince(1, 0).getOwner());
+        assertEquals(west.getArmy(), east.getArmy());
+
+        east.setArmy(west.getArmy() + 1);
+        game.runTurns(1);
+        assertEquals(east, map.getProvince(1, 0).getOwner());
+        game.verifyAggregates();
+    }
+
+    @Test
+    public void steadyStateTurnsAllocateNothing() {
+        Universalis game = Universalis.setupDefaultGame(40, 6, 11L);
+        game.setEventBus(new GameEventBus());
+        game.runTurns(150);
+        assertSteadyStateTurnsAllocateNothing(game);
+    }
+
+    @Test
+    public void steadyStateTurnsWithMetricsAllocateNothing() {
+        Universalis game = Universalis.setupDefaultGame(40, 6, 11L);
+        game.setEventBus(new GameEventBus());
+        game.setMetrics(new TurnMetrics());
+        game.runTurns(150);
+        assertSteadyStateTurnsAllocateNothing(game);
+    }
+
+    @Test
+    public void primitiveSteadyStateTurnsAllocateNothing() {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            nations.add(new Nation("P" + i, i % 2 == 0 ? new OffensiveStrategy() : new NoOpStrategy()));
+        Map map = new Map.Builder(new Random(11)).storage(Map.Storage.PRIMITIVE).create(40).seedNations(nations).build();
+        Universalis game = new Universalis(map, nations, new RandomStreams(11L));
+        game.setEventBus(new GameEventBus());
+        // claiming an empty tile makes the Province view the nation keeps, so warm up until none are left
+        for (int turn = 0; turn < 1000 && map.getOwnedCellCount() < 40 * 40; turn++)
+            game.runTurns(1);
+        assertEquals(40 * 40, map.getOwnedCellCount(), "map not claimed during warm-up");
+        assertSteadyStateTurnsAllocateNothing(game);
+    }
+
+    private static void assertSteadyStateTurnsAllocateNothing(Universalis game) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        assertTrue(game.getNations().size() > 1, "game ended during warm-up");
+        // province and frontier sets grow by doubling; sized for the whole map they never have to
+        int cells = game.getMap().getWidth() * game.getMap().getHeight();
+        for (Nation nation : game.getNations())
+            nation.ensureCapacity(cells);
+
+        int allocatingTurns = 0;
+        for (int turn = 0; turn < 100; turn++) {
+            long before = allocations.getCurrentThreadAllocatedBytes();
+            game.runTurns(1);
+            if (allocations.getCurrentThreadAllocatedBytes() != before)
+                allocatingTurns++;
+        }
+        assertEquals(0, allocatingTurns, allocatingTurns + " of 100 turns allocated");
+    }
+
+    @Test
+    public void seededDefaultGamesReplayIdentically() {
+        Universalis first = Universalis.setupDefaultGame(12, 6, 2024L);
+        Universalis second = Universalis.setupDefaultGame(12, 6, 2024L);
+        assertSameState(first, second);
+
+        first.runTurns(60);
+        second.runTurns(60);
+        assertSameState(first, second);
+    }
+
+    @Test
+    public void restoredCheckpointContinuesLikeTheOriginal(@TempDir Path directory) throws IOException {
+        Universalis original = Universalis.setupDefaultGame(30, 12, 77L);
+        original.runTurns(25);
+        Path file = directory.resolve("game.bin");
+        original.checkpoint(file);
+
+        Universalis restored = Universalis.restore(file);
+        restored.setConsistencyChecks(true);
+        restored.verifyAggregates();
+        assertEquals(original.getCompletedTurns(), restored.getCompletedTurns());
+        assertSameState(original, restored);
+
+        for (int turn = 0; turn < 60; turn++) {
+            original.runTurns(1);
+            restored.runTurns(1);
+            assertSameState(original, restored);
+        }
+    }
+
+    @Test
+    public void checkpointRoundTripsPrimitiveStorage(@TempDir Path directory) throws IOException {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            nations.add(new Nation("P" + i, new OffensiveStrategy()));
+        Map map = new Map.Builder(new Random(4)).storage(Map.Storage.PRIMITIVE).create(40).seedNations(nations).build();
+        Universalis original = new Universalis(map, nations, new RandomStreams(4L));
+        original.runTurns(20);
+        Path file = directory.resolve("primitive.bin");
+        original.checkpoint(file);
+
+        Universalis restored = Universalis.restore(file);
+        assertEquals(Map.Storage.PRIMITIVE, restored.getMap().getStorage());
+        restored.verifyAggregates();
+        original.runTurns(30);
+        restored.runTurns(30);
+        assertSameState(original, restored);
+    }
+
+    @Test
+    public void checkpointRoundTripsSparseStorage(@TempDir Path directory) throws IOException {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            nations.add(new Nation("P" + i, new OffensiveStrategy()));
+        Map map = new Map.Builder(new Random(6)).storage(Map.Storage.SPARSE).create(150).seedNations(nations).build();
+        Universalis original = new Universalis(map, nations, new RandomStreams(6L));
+        original.runTurns(20);
+        Path file = directory.resolve("sparse.bin");
+        original.checkpoint(file);
+
+        Universalis restored = Universalis.restore(file);
+        assertEquals(Map.Storage.SPARSE, restored.getMap().getStorage());
+        restored.verifyAggregates();
+        original.runTurns(30);
+        restored.runTurns(30);
+        assertSameState(original, restored);
+    }
+
+    @Test
+    public void checkpointKeepsMctsSettings(@TempDir Path directory) throws IOException {
+        Universalis original = Universalis.setupDefaultGame(20, 4, 8L);
+        original.runTurns(5);
+        original.getNations().getFirst().setStrategy(new MctsStrategy(Duration.ofMillis(150), 64, 3, 2));
+        Path file = directory.resolve("mcts.bin");
+        original.checkpoint(file);
+
+        Universalis restored = Universalis.restore(file);
+        MctsStrategy strategy = assertInstanceOf(MctsStrategy.class, restored.getNations().getFirst().getStrategy());
+        assertEquals(Duration.ofMillis(150), strategy.getBudget());
+        assertEquals(64, strategy.getIterations());
+        assertEquals(3, strategy.getDepth());
+        assertEquals(2, strategy.getWorkers());
+    }
+
+    @Test
+    public void restoreRejectsOtherFiles(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertThrows(IOException.class, () -> Universalis.restore(file));
+
+        Universalis game = Universalis.setupDefaultGame(10, 3, 1L);
+        game.checkpoint(file);
+        byte[] truncated = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(truncated, truncated.length / 2));
+        assertThrows(IOException.class, () -> Universalis.restore(file));
+    }
+
+    // builds the same game twice for the same seed, including starting development
+    // keeps its borders as they are; given a cell, claims it one turn and gives it up the next
+    private static final class Holding implements Strategy {
+        private final long cell;
+
+        Holding(long cell) {
+            this.cell = cell;
+        }
+
+        @Override
+        public void execute(Nation self, Universalis game) {
+            if (cell < 0) return;
+            Province tile = game.getMap().getProvince(cell);
+            if (tile.getOwner() == self) {
+                self.removeProvince(tile);
+                tile.setOwner(null);
+            } else {
+                tile.setOwner(self);
+                self.captureProvince(tile);
+            }
+        }
+
+        @Override
+        public boolean isSelfDirected() {
+            return true;
+        }
+    }
+
+    private static Universalis seededGame(int size, int nationCount, long seed) {
+        Random rng = new Random(seed);
+        Map map = new Map.Builder(rng).create(size).build();
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                map.setProvince(x, y, new Province(rng.nextInt(3)));
+
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < nationCount; i++)
+            nations.add(new Nation("N" + i, new NoOpStrategy()));
+        for (Nation nation : nations) {
+            int x, y;
+            do {
+                x = rng.nextInt(size);
+                y = rng.nextInt(size);
+            } while (map.getProvince(x, y).getOwner() != null);
+            Province province = map.getProvince(x, y);
+            province.setOwner(nation);
+            nation.addProvinceToNationOnSetup(province);
+            nation.setArmy(nation.getTotalDevelopment());
+        }
+        return new Universalis(map, nations, rng);
+    }
+
+    private static void assertSameState(Universalis expected, Universalis actual) {
+        Map a = expected.getMap();
+        Map b = actual.getMap();
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                Nation ownerA = a.getProvince(x, y).getOwner();
+                Nation ownerB = b.getProvince(x, y).getOwner();
+                assertEquals(ownerA == null ? null : ownerA.getName(), ownerB == null ? null : ownerB.getName());
+                assertEquals(a.getProvince(x, y).getDevelopment(), b.getProvince(x, y).getDevelopment());
+            }
+        }
+        assertEquals(expected.getNations().size(), actual.getNations().size());
+        for (int i = 0; i < expected.getNations().size(); i++) {
+            assertEquals(expected.getNations().get(i).getName(), actual.getNations().get(i).getName());
+            assertEquals(expected.getNations().get(i).getArmy(), actual.getNations().get(i).getArmy());
+        }
+    }
+
     @Test
     @Disabled
     void compareWinsToStalemates() {
@@ -0,0 +1,31 @@
+package universalis.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void recordsEveryGame() {
+        BatchStatistics stats = new BatchRunner().games(12).mapSize(5).nationsPerGame(4).seed(1).threads(3).run();
+
+        assertEquals(12, stats.getGames());
+        long wins = 0;
+        for (long count : stats.getWinsByStrategy().values())
+            wins += count;
+        assertEquals(12, wins);
+        assertTrue(stats.getMinTurns() <= stats.getMaxTurns());
+    }
+
+    @Test
+    public void resultsDoNotDependOnThreadCount() {
+        BatchStatistics single = new BatchRunner().games(10).mapSize(6).nationsPerGame(5).seed(42).threads(1).run();
+        BatchStatistics many = new BatchRunner().games(10).mapSize(6).nationsPerGame(5).seed(42).threads(4).run();
+
+        assertEquals(single.getWinsByStrategy(), many.getWinsByStrategy());
+        assertEquals(single.getMeanTurns(), many.getMeanTurns());
+        assertEquals(single.getMeanWinnerDevelopment(), many.getMeanWinnerDevelopment());
+        assertEquals(single.getStalemates(), many.getStalemates());
+    }
+}
@@ -0,0 +1,149 @@
+package universalis.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventBusTest {
+
+    private static GameEvent turn() {
+        return new GameEvent(GameEvent.Type.TURN_COMPLETED, null);
+    }
+
+    @Test
+    public void subscribingWhilePublishingDoesNotThrow() {
+        GameEventBus bus = new GameEventBus();
+        AtomicInteger calls = new AtomicInteger();
+        bus.subscribe(event -> bus.subscribe(inner -> calls.incrementAndGet()));
+
+        bus.publish(turn());
+        bus.publish(turn());
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void unsubscribeStopsDelivery() {
+        GameEventBus bus = new GameEventBus();
+        AtomicInteger calls = new AtomicInteger();
+        Subscription subscription = bus.subscribe(event -> calls.incrementAndGet());
+
+        bus.publish(turn());
+        subscription.unsubscribe();
+        bus.publish(turn());
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void blockingAsyncSubscriberReceivesEverythingInOrder() throws InterruptedException {
+        GameEventBus bus = new GameEventBus();
+        List<GameEvent> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        bus.subscribeAsync(event -> {
+            received.add(event);
+            if (event.getType() == GameEvent.Type.GAME_FINISHED) done.countDown();
+        }, 2, OverflowPolicy.BLOCK);
+
+        GameEvent[] published = new GameEvent[50];
+        for (int i = 0; i < published.length; i++) {
+            published[i] = turn();
+            bus.publish(published[i]);
+        }
+        bus.publish(new GameEvent(GameEvent.Type.GAME_FINISHED, null));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(published.length + 1, received.size());
+        for (int i = 0; i < published.length; i++)
+            assertSame(published[i], received.get(i));
+    }
+
+    @Test
+    public void coalescingSubscriberSkipsStaleTurnsButKeepsTheLatest() throws InterruptedException {
+        GameEventBus bus = new GameEventBus();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<GameEvent> received = new CopyOnWriteArrayList<>();
+        Subscription subscription = bus.subscribeAsync(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event);
+            if (event.getType() == GameEvent.Type.GAME_FINISHED) done.countDown();
+        }, 4, OverflowPolicy.COALESCE_LATEST);
+
+        GameEvent last = null;
+        for (int i = 0; i < 100; i++) {
+            last = turn();
+            bus.publish(last); // never blocks even though the subscriber is stuck
+        }
+        bus.publish(new GameEvent(GameEvent.Type.GAME_FINISHED, null));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(received.size() <= 3, "stale turns should have been coalesced");
+        assertSame(last, received.get(received.size() - 2));
+        assertEquals(GameEvent.Type.GAME_FINISHED, received.getLast().getType());
+        assertEquals(100 + 1 - received.size(), subscription.getDroppedCount());
+    }
+
+    @Test
+    public void coalescingNeverEvictsOtherEventsForATurn() throws InterruptedException {
+        GameEventBus bus = new GameEventBus();
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<GameEvent> received = new CopyOnWriteArrayList<>();
+        Subscription subscription = bus.subscribeAsync(event -> {
+            delivering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event);
+            if (event.getType() == GameEvent.Type.GAME_FINISHED) done.countDown();
+        }, 1, OverflowPolicy.COALESCE_LATEST);
+
+        // one game finished while another sharing the bus still publishes turns
+        GameEvent first = turn();
+        bus.publish(first);
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+        GameEvent finished = new GameEvent(GameEvent.Type.GAME_FINISHED, null);
+        bus.publish(finished);
+        bus.publish(turn());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(first, finished), received);
+        assertEquals(1, subscription.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestNeverBlocksThePublisher() {
+        GameEventBus bus = new GameEventBus();
+        CountDownLatch release = new CountDownLatch(1);
+        Subscription subscription = bus.subscribeAsync(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 3, OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 20; i++)
+            bus.publish(turn());
+
+        assertTrue(subscription.getDroppedCount() >= 16);
+        release.countDown();
+        subscription.unsubscribe();
+    }
+}
@@ -1,7 +1,9 @@
 package universalis.map;
 
 import org.junit.jupiter.api.Test;
+import universalis.Universalis;
 import universalis.strategy.NoOpStrategy;
+import universalis.strategy.OffensiveStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,5 +35,266 @@ public class MapTest {
             }
         }
     }
-}
 
+    @Test
+    public void primitiveStorageBehavesLikeObjectStorage() {
+        Map map = new Map.Builder(new java.util.Random(42)).storage(Map.Storage.PRIMITIVE).create(5).build();
+        assertEquals(5, map.getWidth());
+        assertEquals(5, map.getHeight());
+
+        Nation a = new Nation("A", new NoOpStrategy());
+        Province p = map.getProvince(2, 3);
+        int dev = p.getDevelopment();
+        assertTrue(dev >= 0 && dev <= 3);
+
+        p.setOwner(a);
+        a.captureProvince(p);
+        // views of the same cell see the same state and compare equal
+        Province again = map.getProvince(2, 3);
+        assertEquals(p, again);
+        assertSame(a, again.getOwner());
+        assertEquals(Math.max(0, dev - 1), again.getDevelopment());
+
+        map.setProvince(0, 0, new Province(7));
+        assertEquals(7, map.getProvince(0, 0).getDevelopment());
+
+        a.removeProvince(again);
+        assertEquals(0, a.getProvinceCount());
+    }
+
+    @Test
+    public void compactMapsKeepTheirOwnNationIds() {
+        Map first = new Map.Builder(new java.util.Random(1)).storage(Map.Storage.PRIMITIVE).create(4).build();
+        Map second = new Map.Builder(new java.util.Random(2)).storage(Map.Storage.SPARSE).create(4).build();
+        Nation a = new Nation("A", new NoOpStrategy());
+        Nation b = new Nation("B", new NoOpStrategy());
+
+        // b gets id 1 in the second map and id 2 in the first, so a stale cached id would show
+        second.getProvince(0, 0).setOwner(b);
+        first.getProvince(0, 0).setOwner(a);
+        for (int x = 1; x < 4; x++) {
+            first.getProvince(x, 0).setOwner(b);
+            second.getProvince(x, 0).setOwner(a);
+            first.getProvince(x, 1).setOwner(a);
+            second.getProvince(x, 1).setOwner(b);
+        }
+
+        assertSame(a, first.getOwner(first.cellOf(0, 0)));
+        assertSame(b, second.getOwner(second.cellOf(0, 0)));
+        for (int x = 1; x < 4; x++) {
+            assertSame(b, first.getOwner(first.cellOf(x, 0)));
+            assertSame(a, second.getOwner(second.cellOf(x, 0)));
+            assertSame(a, first.getOwner(first.cellOf(x, 1)));
+            assertSame(b, second.getOwner(second.cellOf(x, 1)));
+        }
+    }
+
+    @Test
+    public void primitiveStorageRunsAGame() {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            nations.add(new Nation("P" + i, new OffensiveStrategy(new java.util.Random(i))));
+        Map map = new Map.Builder(new java.util.Random(9)).storage(Map.Storage.PRIMITIVE)
+                .create(10).seedNations(nations).build();
+
+        Universalis game = new Universalis(map, nations, new java.util.Random(9));
+        game.runTurns(50);
+
+        int owned = 0;
+        for (int y = 0; y < map.getHeight(); y++)
+            for (int x = 0; x < map.getWidth(); x++)
+                if (map.getProvince(x, y).getOwner() != null) owned++;
+        int counted = 0;
+        for (Nation nation : game.getNations())
+            counted += nation.getProvinceCount();
+        assertEquals(owned, counted);
+    }
+
+    @Test
+    public void changeTrackingReportsOwnerAndDevelopmentChanges() {
+        Map map = new Map.Builder(new java.util.Random(1)).create(4).build();
+        assertArrayEquals(new long[0], map.drainChangedCells()); // off by default
+
+        map.setChangeTracking(true);
+        Nation a = new Nation("A", new NoOpStrategy());
+        map.getProvince(1, 0).setOwner(a);
+        map.getProvince(3, 2).changeDevelopment(1);
+        map.getProvince(1, 0).changeDevelopment(1);
+
+        assertArrayEquals(new long[] { map.cellOf(1, 0), map.cellOf(3, 2) }, map.drainChangedCells());
+        assertArrayEquals(new long[0], map.drainChangedCells());
+    }
+
+    @Test
+    public void stateHashFollowsOwnership() {
+        Map map = new Map.Builder(new java.util.Random(3)).create(5).build();
+        Nation a = new Nation("A", new NoOpStrategy());
+        Nation b = new Nation("B", new NoOpStrategy());
+        assertEquals(0, map.getStateHash());
+
+        map.getProvince(1, 1).setOwner(a);
+        map.getProvince(2, 1).setOwner(b);
+        long start = map.getStateHash();
+        assertEquals(2, map.getOwnedCellCount());
+
+        // same owners, different cells: different state
+        map.getProvince(1, 1).setOwner(b);
+        map.getProvince(2, 1).setOwner(a);
+        assertNotEquals(start, map.getStateHash());
+        map.verifyStateHash();
+
+        // swapping back gives the same hash again
+        map.getProvince(1, 1).setOwner(a);
+        map.getProvince(2, 1).setOwner(b);
+        assertEquals(start, map.getStateHash());
+
+        map.getProvince(2, 1).setOwner(null);
+        map.getProvince(1, 1).setOwner(null);
+        assertEquals(0, map.getStateHash());
+        assertEquals(0, map.getOwnedCellCount());
+        map.verifyStateHash();
+    }
+
+    @Test
+    public void sparseStorageOnlyHoldsChangedChunks() {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            nations.add(new Nation("P" + i, new OffensiveStrategy()));
+        Map map = new Map.Builder(new java.util.Random(5)).storage(Map.Storage.SPARSE)
+                .create(100_000).seedNations(nations).build();
+        SparseGrid grid = (SparseGrid) map.grid();
+        assertTrue(grid.allocatedChunks() <= nations.size());
+
+        Universalis game = new Universalis(map, nations, new java.util.Random(5));
+        game.setConsistencyChecks(false);
+        game.runTurns(30);
+        assertTrue(grid.allocatedChunks() <= 4 * nations.size(), "allocated " + grid.allocatedChunks());
+        int counted = 0;
+        for (Nation nation : game.getNations())
+            counted += nation.getProvinceCount();
+        assertEquals(counted, map.getOwnedCellCount());
+
+        // untouched tiles read their starting development without allocating anything
+        long far = map.cellOf(99_999, 99_999);
+        int development = map.getDevelopment(far);
+        assertEquals(Province.startingDevelopment(grid.seed(), far), development);
+        assertNull(map.getOwner(far));
+
+        // a chunk is freed once its cells are back to their starting state
+        int before = grid.allocatedChunks();
+        Province province = map.getProvince(99_999, 99_999);
+        province.setOwner(nations.getFirst());
+        province.setOwner(null);
+        assertEquals(before + 1, grid.allocatedChunks());
+        map.trimStorage();
+        assertEquals(before, grid.allocatedChunks());
+        assertEquals(development, map.getDevelopment(far));
+    }
+
+    @Test
+    public void topologiesConnectTilesSymmetrically() {
+        for (Topology topology : Topology.values()) {
+            List<Nation> nations = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+                nations.add(new Nation(topology + "-" + i, new OffensiveStrategy()));
+            Map map = new Map.Builder(new java.util.Random(8)).topology(topology).createNonSquare(9, 7)
+                    .seedNations(nations).build();
+            assertSame(topology, map.getTopology());
+
+            long[] around = new long[map.getMaxDegree()];
+            for (long cell = 0; cell < 63; cell++) {
+                // the adjacency table gives the same neighbors as the topology
+                int count = topology.neighbors(map.xOf(cell), map.yOf(cell), 9, 7, around);
+                assertEquals(count, map.degree(cell));
+                for (int i = 0; i < count; i++) {
+                    long neighbor = map.neighbor(cell, i);
+                    assertEquals(around[i], neighbor);
+                    boolean back = false;
+                    for (int j = 0; j < map.degree(neighbor); j++)
+                        back |= map.neighbor(neighbor, j) == cell;
+                    assertTrue(back, topology + ": " + neighbor + " does not lead back to " + cell);
+                }
+            }
+
+            Universalis game = new Universalis(map, nations, new java.util.Random(8));
+            game.setConsistencyChecks(true);
+            game.runTurns(40);
+        }
+
+        Map square = new Map.Builder(new java.util.Random(1)).create(5).build();
+        assertEquals(2, square.degree(square.cellOf(0, 0)));
+        Map diagonal = new Map.Builder(new java.util.Random(1)).topology(Topology.SQUARE_8).create(5).build();
+        assertEquals(3, diagonal.degree(diagonal.cellOf(0, 0)));
+        assertEquals(8, diagonal.degree(diagonal.cellOf(2, 2)));
+        Map hex = new Map.Builder(new java.util.Random(1)).topology(Topology.HEX).create(5).build();
+        assertEquals(6, hex.degree(hex.cellOf(2, 2)));
+        Map torus = new Map.Builder(new java.util.Random(1)).topology(Topology.TORUS).create(5).build();
+        assertEquals(4, torus.degree(torus.cellOf(0, 0)));
+        assertEquals(torus.cellOf(4, 0), torus.neighbor(torus.cellOf(0, 0), 1));
+    }
+
+    @Test
+    public void forksKeepTheirChangesToThemselves() {
+        Map map = new Map.Builder(new java.util.Random(13)).createNonSquare(4, 1).build();
+        for (int x = 0; x < 4; x++)
+            map.setProvince(x, 0, new Province(3));
+        Nation west = new Nation("West", new NoOpStrategy());
+        Nation east = new Nation("East", new NoOpStrategy());
+        settle(map, west, 0);
+        settle(map, east, 3);
+        west.setArmy(10);
+        east.setArmy(4);
+
+        GameFork root = GameFork.of(map, List.of(west, east));
+        GameFork first = root.fork();
+        first.expandOrAttack(0, 1);
+        GameFork second = first.fork();
+        second.expandOrAttack(1, 2);
+
+        assertEquals(0, root.changes());
+        assertEquals(1, first.changes());
+        assertEquals(2, second.changes());
+        assertEquals(GameFork.NO_OWNER, first.owner(2));
+        assertEquals(1, second.owner(2));
+        assertEquals(0, second.owner(1));
+        assertEquals(2, first.development(1));
+        assertEquals(2, first.provinces(0));
+        assertEquals(1, root.provinces(0));
+        assertNull(map.getOwner(1), "forks never write to the map");
+        assertSame(west, first.nation(first.indexOf(west)));
+    }
+
+    @Test
+    public void forkBattlesFollowTheNationRules() {
+        Map map = new Map.Builder(new java.util.Random(14)).createNonSquare(2, 1).build();
+        map.setProvince(0, 0, new Province(5));
+        map.setProvince(1, 0, new Province(2));
+        Nation attacker = new Nation("Att", new NoOpStrategy());
+        Nation defender = new Nation("Def", new NoOpStrategy());
+        settle(map, attacker, 0);
+        settle(map, defender, 1);
+        attacker.setArmy(9);
+        defender.setArmy(3);
+
+        GameFork fork = GameFork.of(map, List.of(attacker, defender)).fork();
+        fork.expandOrAttack(0, 1);
+        fork.growArmies();
+        attacker.carryOut(universalis.strategy.Order.attack(attacker, 1), map);
+        attacker.growArmy();
+        defender.growArmy();
+
+        assertEquals(0, fork.owner(1));
+        assertSame(attacker, map.getOwner(1));
+        assertEquals(map.getDevelopment(1), fork.development(1));
+        assertEquals(attacker.getArmy(), fork.army(0));
+        assertEquals(defender.getArmy(), fork.army(1));
+        assertEquals(attacker.getTotalDevelopment(), fork.totalDevelopment(0));
+        assertEquals(0, fork.provinces(1));
+    }
+
+    private static void settle(Map map, Nation nation, long cell) {
+        Province province = map.getProvince(cell);
+        province.setOwner(nation);
+        nation.addProvinceToNationOnSetup(province);
+    }
+}
@@ -22,6 +22,84 @@ public class NationTest {
         assertEquals(0, n.getProvinceCount());
     }
 
+    @Test
+    public void capturesKeepBothNationsConsistentInEitherOrder() {
+        for (Map.Storage storage : Map.Storage.values()) {
+            Map map = new Map.Builder(new java.util.Random(5)).storage(storage).createNonSquare(3, 1).build();
+            Nation attacker = new Nation("Att", new NoOpStrategy());
+            Nation defender = new Nation("Def", new NoOpStrategy());
+            for (int x = 0; x < 3; x++) {
+                map.setProvince(x, 0, new Province(3));
+                Province p = map.getProvince(x, 0);
+                p.setOwner(x == 0 ? attacker : defender);
+                (x == 0 ? attacker : defender).addProvinceToNationOnSetup(p);
+            }
+
+            Province first = map.getProvince(1, 0);
+            first.setOwner(attacker);
+            attacker.captureProvince(first);
+            defender.removeProvince(first);
+            attacker.verifyAggregates(map);
+            defender.verifyAggregates(map);
+            assertEquals(3, defender.getTotalDevelopment(), storage.toString());
+
+            Province second = map.getProvince(2, 0);
+            attacker.captureProvince(second);
+            second.setOwner(attacker);
+            defender.removeProvince(second);
+            attacker.verifyAggregates(map);
+            defender.verifyAggregates(map);
+            assertEquals(0, defender.getProvinceCount(), storage.toString());
+            assertEquals(0, defender.getTotalDevelopment(), storage.toString());
+            assertEquals(3 + 2 + 2, attacker.getTotalDevelopment(), storage.toString());
+        }
+    }
+
+    @Test
+    public void provinceListIsAnIndexedSet() {
+        Map map = new Map.Builder(new java.util.Random(4)).storage(Map.Storage.PRIMITIVE).create(20).build();
+        Nation n = new Nation("Set", new NoOpStrategy());
+        for (int y = 0; y < 20; y++)
+            for (int x = 0; x < 20; x++)
+                n.addProvinceToNationOnSetup(map.getProvince(x, y));
+        // a second view of the same cell is the same province
+        n.addProvinceToNationOnSetup(map.getProvince(3, 4));
+        assertEquals(400, n.getProvinceCount());
+
+        for (int x = 0; x < 20; x++)
+            n.removeProvince(map.getProvince(x, 7));
+        assertEquals(380, n.getProvinceCount());
+        assertFalse(n.getProvinces().contains(map.getProvince(5, 7)));
+        assertTrue(n.getProvinces().contains(map.getProvince(5, 8)));
+        for (int i = 0; i < n.getProvinceCount(); i++)
+            assertEquals(i, n.getProvinces().indexOf(n.getProvinces().get(i)));
+        n.verifyAggregates(null);
+        assertThrows(UnsupportedOperationException.class, () -> n.getProvinces().add(new Province(1)));
+    }
+
+    @Test
+    public void developmentPointsLandUniformly() {
+        Map map = new Map.Builder(new java.util.Random(9)).create(10).build();
+        Nation n = new Nation("Dev", new NoOpStrategy());
+        n.setRandom(new universalis.random.SplitMixRandom(9));
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                map.setProvince(x, y, new Province(0));
+                Province p = map.getProvince(x, y);
+                p.setOwner(n);
+                n.addProvinceToNationOnSetup(p);
+            }
+        }
+        n.distributeDevelopment(2000, 1);
+        // 20 points per province on average; the few drawn past the cap of 25 are lost
+        assertTrue(Math.abs(n.getTotalDevelopment() - 2000) < 60, "total " + n.getTotalDevelopment());
+        int touched = 0;
+        for (Province p : n.getProvinces())
+            if (p.getDevelopment() > 0) touched++;
+        assertEquals(100, touched);
+        n.verifyAggregates(map);
+    }
+
     @Test
     public void takeTurnStrategySwitching() {
         Map.Builder builder = new Map.Builder(new java.util.Random(5));
@@ -39,6 +117,76 @@ public class NationTest {
         n.takeTurn(game); // should not throw an exception
     }
 
+    @Test
+    public void frontierMatchesFullScanAfterTurns() {
+        Map.Builder builder = new Map.Builder(new java.util.Random(11));
+        Map map = builder.create(8).build();
+
+        List<Nation> nations = new ArrayList<>();
+        nations.add(new Nation("A", new NoOpStrategy()));
+        nations.add(new Nation("B", new NoOpStrategy()));
+        nations.add(new Nation("C", new NoOpStrategy()));
+        int[][] seeds = { { 0, 0 }, { 7, 7 }, { 3, 4 } };
+        for (int i = 0; i < nations.size(); i++) {
+            Province p = map.getProvince(seeds[i][0], seeds[i][1]);
+            p.setOwner(nations.get(i));
+            nations.get(i).captureProvince(p);
+            nations.get(i).setArmy(10);
+        }
+
+        Universalis game = new Universalis(map, nations, new java.util.Random(3));
+        for (int turn = 0; turn < 30; turn++) {
+            for (int i = 0; i < nations.size(); i++) {
+                nations.get(i).expandOrAttack(game, new java.util.Random(turn));
+                nations.get(i).setArmy(10 + turn * (i + 1));
+            }
+            for (Nation n : nations)
+                assertFrontierMatchesScan(map, n);
+        }
+    }
+
+    private static void assertFrontierMatchesScan(Map map, Nation nation) {
+        int expectedEmpty = 0;
+        int expectedEnemy = 0;
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                Nation owner = map.getProvince(x, y).getOwner();
+                boolean borders = false;
+                for (int[] d : Universalis.DIRECTIONS) {
+                    int nx = x + d[0], ny = y + d[1];
+                    if (!map.checkBounds(nx, ny) && map.getProvince(nx, ny).getOwner() == nation)
+                        borders = true;
+                }
+                long cell = map.cellOf(x, y);
+                boolean empty = borders && owner == null;
+                boolean enemy = borders && owner != null && owner != nation;
+                assertEquals(empty, nation.getFrontier().getEmptyCells().contains(cell));
+                assertEquals(enemy, nation.getFrontier().getEnemyCells().contains(cell));
+                if (empty) expectedEmpty++;
+                if (enemy) expectedEnemy++;
+            }
+        }
+        assertEquals(expectedEmpty, nation.getFrontier().getEmptyCells().size());
+        assertEquals(expectedEnemy, nation.getFrontier().getEnemyCells().size());
+    }
+
+    @Test
+    public void aggregatesMatchRecountThroughoutGame() {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            nations.add(new Nation("Agg" + i, new NoOpStrategy()));
+        Map map = new Map.Builder(new java.util.Random(21)).create(12).seedNations(nations).build();
+
+        Universalis game = new Universalis(map, nations, new java.util.Random(21));
+        game.setConsistencyChecks(true);
+        game.runTurns(60); // throws if any aggregate drifts
+
+        for (Nation n : nations) {
+            n.verifyAggregates(map);
+            assertEquals(Math.max(1, 8 * n.getTotalDevelopment()), n.armyCap());
+        }
+    }
+
     @Test
     public void createUniqueNamesUntilExhaustedThenThrows() {
         NationFactory.clearUsedNamesForTests();
@@ -0,0 +1,149 @@
+package universalis.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TurnMetricsTest {
+
+    private static Universalis game(long seed) {
+        Universalis game = Universalis.setupDefaultGame(30, 6, seed);
+        game.setEventBus(new GameEventBus());
+        return game;
+    }
+
+    @Test
+    public void histogramBucketsByPowersOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileNanos(0.5));
+        for (int i = 0; i < 99; i++)
+            histogram.record(100);
+        histogram.record(5000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(99 * 100 + 5000, histogram.getTotalNanos());
+        assertEquals(5000, histogram.getMaxNanos());
+        // 100 lies in [64, 128)
+        assertEquals(127, histogram.percentileNanos(0.5));
+        assertEquals(127, histogram.percentileNanos(0.99));
+        assertEquals(5000, histogram.percentileNanos(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void gamesCountTheirTurnsAndMoves() {
+        Universalis game = game(5L);
+        TurnMetrics metrics = new TurnMetrics(1);
+        game.setMetrics(metrics);
+        long ownedAtStart = game.getMap().getOwnedCellCount();
+        game.runTurns(40);
+
+        assertEquals(game.getCompletedTurns(), metrics.getTurns());
+        for (TurnMetrics.Phase phase : TurnMetrics.Phase.values())
+            assertEquals(metrics.getTurns(), metrics.getPhase(phase).getCount(), phase.name());
+        // captures only move tiles between nations, so every newly owned tile is an expansion
+        assertTrue(metrics.getExpansions() > 0);
+        assertEquals(game.getMap().getOwnedCellCount() - ownedAtStart, metrics.getExpansions());
+        assertTrue(metrics.getCaptures() + metrics.getTies() <= metrics.getBattles());
+        assertFalse(metrics.getStrategyTimeByType().isEmpty());
+        assertEquals(6, metrics.getStrategyNanosByNation().size());
+    }
+
+    @Test
+    public void phasesAndNationMovesAreTimedOnSampledTurnsOnly() {
+        Universalis game = game(6L);
+        TurnMetrics metrics = new TurnMetrics(4);
+        game.setMetrics(metrics);
+        game.runTurns(10);
+
+        assertEquals(10, metrics.getTurns());
+        assertEquals(10, metrics.getPhase(TurnMetrics.Phase.TURN).getCount());
+        assertEquals(2, metrics.getPhase(TurnMetrics.Phase.STRATEGY).getCount());
+        assertEquals(2, metrics.getPhase(TurnMetrics.Phase.SLEEP).getCount());
+        assertFalse(metrics.getStrategyNanosByNation().isEmpty());
+
+        game = game(6L);
+        metrics = new TurnMetrics(1000);
+        game.setMetrics(metrics);
+        game.runTurns(10);
+        assertEquals(10, metrics.getTurns());
+        assertTrue(metrics.getStrategyTimeByType().isEmpty());
+        assertTrue(metrics.getStrategyNanosByNation().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new TurnMetrics(0));
+    }
+
+    @Test
+    public void metricsDoNotChangeTheGame() {
+        Universalis plain = game(9L);
+        Universalis measured = game(9L);
+        measured.setMetrics(new TurnMetrics());
+        measured.setTurnMode(Universalis.TurnMode.PARALLEL);
+        plain.setTurnMode(Universalis.TurnMode.PARALLEL);
+        plain.runTurns(30);
+        measured.runTurns(30);
+
+        assertEquals(plain.getMap().getStateHash(), measured.getMap().getStateHash());
+        assertEquals(30, measured.getMetrics().getTurns());
+    }
+
+    @Test
+    public void metricsAreReadableOverJmx() throws Exception {
+        TurnMetrics metrics = new TurnMetrics();
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            Universalis game = game(3L);
+            game.setMetrics(metrics);
+            game.runTurns(10);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(10L, server.getAttribute(name, "Turns"));
+            TurnMetricsMXBean proxy = JMX.newMXBeanProxy(server, name, TurnMetricsMXBean.class);
+            assertEquals(10, proxy.getTurnTime().getCount());
+            assertEquals(metrics.getExpansions(), proxy.getExpansions());
+            assertThrows(IllegalStateException.class, () -> metrics.registerMBean("again"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void turnsAreRecordedAsJfrEvents(@TempDir Path directory) throws IOException {
+        Universalis game = game(4L);
+        game.setMetrics(new TurnMetrics());
+        Path file = directory.resolve("turns.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("universalis.Turn");
+            recording.enable("universalis.NationTurn");
+            recording.start();
+            game.runTurns(5);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> turns = events.stream()
+                .filter(event -> event.getEventType().getName().equals("universalis.Turn")).toList();
+        assertEquals(5, turns.size());
+        assertEquals(5, turns.stream().mapToInt(event -> event.getInt("turn")).max().orElse(0));
+        assertTrue(turns.stream().allMatch(event -> event.getDuration("turnTime").toNanos() > 0));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("universalis.NationTurn")));
+    }
+}
@@ -0,0 +1,48 @@
+package universalis.random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplitMixRandomTest {
+
+    @Test
+    public void sameSeedSameSequence() {
+        SplitMixRandom a = new SplitMixRandom(17);
+        SplitMixRandom b = new SplitMixRandom(17);
+        for (int i = 0; i < 100; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    @Test
+    public void restoredStreamContinuesWhereItStopped() {
+        SplitMixRandom original = new SplitMixRandom(5).split();
+        original.nextInt(10);
+        SplitMixRandom restored = SplitMixRandom.restore(original.getState(), original.getGamma());
+        for (int i = 0; i < 50; i++)
+            assertEquals(original.nextInt(1000), restored.nextInt(1000));
+    }
+
+    @Test
+    public void boundedDrawsStayInRange() {
+        SplitMixRandom random = new SplitMixRandom(3);
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(7);
+            assertTrue(value >= 0 && value < 7);
+            double d = random.nextDouble();
+            assertTrue(d >= 0.0 && d < 1.0);
+        }
+        assertThrows(UnsupportedOperationException.class, () -> random.setSeed(1));
+    }
+
+    @Test
+    public void streamsDependOnKeyNotRequestOrder() {
+        RandomStreams first = new RandomStreams(99);
+        RandomStreams second = new RandomStreams(99);
+        long nationThree = first.nation(3).nextLong();
+        second.phase(RandomStreams.Phase.MAP).nextLong();
+        second.nation(0).nextLong();
+        assertEquals(nationThree, second.nation(3).nextLong());
+        assertNotEquals(first.nation(1).nextLong(), first.nation(2).nextLong());
+    }
+}
@@ -0,0 +1,139 @@
+package universalis.replay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import universalis.GameResult;
+import universalis.Universalis;
+import universalis.events.GameEvent;
+import universalis.events.GameEventBus;
+import universalis.report.QuietReporter;
+import universalis.snapshot.GameSnapshot;
+import universalis.snapshot.NationSummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayTest {
+
+    @Test
+    public void seekingAnyTurnReproducesTheRecordedState(@TempDir Path directory) throws IOException {
+        Universalis game = quietGame(40, 8, 21L);
+        game.setSnapshotPublishing(true);
+        List<GameSnapshot> recorded = new ArrayList<>();
+        recorded.add(game.getSnapshot());
+        game.getEventBus().subscribe(event -> {
+            if (event.getType() == GameEvent.Type.TURN_COMPLETED)
+                recorded.add(event.getSnapshot());
+        });
+
+        Path file = directory.resolve("game.replay");
+        ReplayRecorder recorder = ReplayRecorder.start(game, file, 7);
+        try {
+            game.runTurns(60);
+        } finally {
+            recorder.close();
+        }
+        int lastTurn = recorded.get(recorded.size() - 1).getTurn();
+
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            assertEquals(0, reader.getFirstTurn());
+            assertEquals(lastTurn, reader.getLastTurn());
+            assertFalse(reader.isComplete());
+            // forward, backward and jumping around all have to land on the same state
+            int[] order = { 0, 1, 2, 30, 31, lastTurn, 5, 14, 13, lastTurn / 2, 0 };
+            for (int turn : order)
+                assertSameSnapshot(recorded.get(turn), reader.seek(turn));
+            for (int turn = lastTurn; turn >= 0; turn--)
+                assertSameSnapshot(recorded.get(turn), reader.seek(turn));
+        }
+    }
+
+    @Test
+    public void finishedGamesAreMarkedComplete(@TempDir Path directory) throws IOException {
+        Universalis game = quietGame(10, 3, 8L);
+        Path file = directory.resolve("finished.replay");
+        GameResult result;
+        ReplayRecorder recorder = ReplayRecorder.start(game, file, ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL);
+        try {
+            result = game.playToCompletion();
+        } finally {
+            recorder.close();
+        }
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            assertTrue(reader.isComplete());
+            assertEquals(result.getTurns(), reader.getLastTurn());
+            assertSameSnapshot(game.getSnapshot(), reader.seek(reader.getLastTurn()));
+        }
+    }
+
+    @Test
+    public void truncatedRecordingsStayReadable(@TempDir Path directory) throws IOException {
+        Universalis game = quietGame(20, 4, 3L);
+        Path file = directory.resolve("cut.replay");
+        ReplayRecorder recorder = ReplayRecorder.start(game, file, 7);
+        try {
+            game.runTurns(30);
+        } finally {
+            recorder.close();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            // the final delta lost its tail, the turn before it is the last one left
+            assertEquals(29, reader.getLastTurn());
+            reader.seek(reader.getLastTurn());
+        }
+    }
+
+    @Test
+    public void playerMovesAtItsSpeedAndStopsAtTheEnds(@TempDir Path directory) throws IOException {
+        Universalis game = quietGame(20, 4, 3L);
+        Path file = directory.resolve("player.replay");
+        ReplayRecorder recorder = ReplayRecorder.start(game, file, 5);
+        try {
+            game.runTurns(30);
+        } finally {
+            recorder.close();
+        }
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            ReplayPlayer player = new ReplayPlayer(reader, 10);
+            assertEquals(10, player.advance(1_000_000_000L).getTurn());
+            player.setSpeed(-4);
+            assertEquals(8, player.advance(500_000_000L).getTurn());
+            player.setPaused(true);
+            assertEquals(8, player.advance(1_000_000_000L).getTurn());
+            player.setPaused(false);
+            player.setSpeed(1000);
+            assertEquals(reader.getLastTurn(), player.advance(1_000_000_000L).getTurn());
+        }
+    }
+
+    private static Universalis quietGame(int size, int nations, long seed) {
+        Universalis game = Universalis.setupDefaultGame(size, nations, seed);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        return game;
+    }
+
+    private static void assertSameSnapshot(GameSnapshot expected, GameSnapshot actual) {
+        assertEquals(expected.getTurn(), actual.getTurn());
+        assertEquals(0, actual.changedSince(expected).length, "cells differ at turn " + expected.getTurn());
+        assertEquals(expected.getNations().size(), actual.getNations().size());
+        for (int i = 0; i < expected.getNations().size(); i++) {
+            NationSummary a = expected.getNations().get(i);
+            NationSummary b = actual.getNations().get(i);
+            assertEquals(a.getId(), b.getId());
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getProvinceCount(), b.getProvinceCount());
+            assertEquals(a.getTotalDevelopment(), b.getTotalDevelopment());
+            assertEquals(a.getArmy(), b.getArmy());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package universalis.report;
+
+import org.junit.jupiter.api.Test;
+import universalis.GameResult;
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+import universalis.map.Map;
+import universalis.map.Nation;
+import universalis.map.Province;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameReporterTest {
+
+    @Test
+    public void snapshotTextKeepsTheFormattedLayout() {
+        Universalis game = Universalis.setupDefaultGame(6, 3, 12L);
+        game.runTurns(5);
+        assertEquals(formatted(game), game.toString());
+    }
+
+    @Test
+    public void snapshotReporterWritesEveryTurnThenTheSummary() {
+        Universalis game = quietBus(Universalis.setupDefaultGame(6, 3, 5L));
+        StringWriter out = new StringWriter();
+        game.setReporter(new SnapshotReporter(out));
+        GameResult result = game.playToCompletion();
+
+        String text = out.toString();
+        assertEquals(result.getTurns(), count(text, "=== Universalis Map snapshot ==="));
+        assertTrue(text.contains("Took " + result.getTurns() + " turns.\n"));
+    }
+
+    @Test
+    public void summaryReporterSkipsTheMap() {
+        Universalis game = quietBus(Universalis.setupDefaultGame(6, 3, 5L));
+        StringWriter out = new StringWriter();
+        game.setReporter(new SummaryReporter(out));
+        GameResult result = game.playToCompletion();
+
+        String text = out.toString();
+        assertFalse(text.contains("Map snapshot"));
+        assertTrue(text.startsWith(result.isStalemate() ? "Stalemate detected" : "Took "));
+    }
+
+    @Test
+    public void ansiReporterRedrawsOnlyChangedCells() {
+        Universalis game = quietBus(Universalis.setupDefaultGame(30, 4, 9L));
+        StringWriter out = new StringWriter();
+        AnsiReporter reporter = new AnsiReporter(out);
+        reporter.gameStarting(game);
+
+        reporter.turnStarting(game);
+        int firstFrame = out.getBuffer().length();
+        assertEquals(1, count(out.toString(), "\u001b[2J"));
+
+        game.runTurns(1);
+        reporter.turnStarting(game);
+        String secondFrame = out.toString().substring(firstFrame);
+        assertFalse(secondFrame.contains("\u001b[2J"));
+        assertTrue(secondFrame.length() < firstFrame / 4, "second frame should only touch changed cells");
+    }
+
+    @Test
+    public void ansiReporterPutsSnapshotPublishingBack() {
+        Universalis game = quietBus(Universalis.setupDefaultGame(8, 3, 9L));
+        game.setReporter(new AnsiReporter(new StringWriter()));
+        assertFalse(game.isSnapshotPublishing());
+        game.playToCompletion();
+        assertFalse(game.isSnapshotPublishing());
+    }
+
+    private static Universalis quietBus(Universalis game) {
+        game.setEventBus(new GameEventBus());
+        return game;
+    }
+
+    // the String.format rendering the reporter replaced
+    private static String formatted(Universalis game) {
+        Map map = game.getMap();
+        StringBuilder sb = new StringBuilder("\n=== Universalis Map snapshot ===\n");
+        for (int row = 0; row < map.getHeight(); row++) {
+            for (int col = 0; col < map.getWidth(); col++) {
+                Province province = map.getProvince(col, row);
+                String name = province.getOwner() == null ? "." : province.getOwner().getName();
+                sb.append(String.format("%2d:%-10s ", province.getDevelopment(), name.length() > 10 ? name.substring(0, 10) : name));
+            }
+            sb.append("\n");
+        }
+        sb.append("\n=== Nations ===\n");
+        for (Nation nation : game.getNations())
+            sb.append(String.format("%s - provinces=%d, totalDev=%d, army=%d\n", nation.getName(),
+                    nation.getProvinceCount(), nation.getTotalDevelopment(), nation.getArmy()));
+        return sb.append("===============================").toString();
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int at = text.indexOf(needle); at >= 0; at = text.indexOf(needle, at + needle.length()))
+            count++;
+        return count;
+    }
+}
@@ -0,0 +1,203 @@
+package universalis.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import universalis.Universalis;
+import universalis.snapshot.GameSnapshot;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationServerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private SimulationServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new SimulationServer(0, 10);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).timeout(TIMEOUT).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int number(String json, String field) {
+        Matcher matcher = Pattern.compile("\"" + field + "\":(-?\\d+)").matcher(json);
+        assertTrue(matcher.find(), field + " missing in " + json);
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static int[] numbers(String json, String field) {
+        Matcher matcher = Pattern.compile("\"" + field + "\":\\[([\\d,]*)]").matcher(json);
+        assertTrue(matcher.find(), field + " missing in " + json);
+        if (matcher.group(1).isEmpty()) return new int[0];
+        return Stream.of(matcher.group(1).split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    @Test
+    public void hostedGamesPauseStepAndCancel() throws InterruptedException {
+        HostedGame game = server.host(Universalis.setupDefaultGame(20, 4, 3L), 0, 1000, true);
+        assertEquals(HostedGame.State.PAUSED, game.getState());
+        assertEquals(0, game.getSnapshot().getTurn());
+
+        game.step(3);
+        GameSnapshot snapshot = game.awaitSnapshotAfter(2, 10, TimeUnit.SECONDS);
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.getTurn());
+        assertNull(game.awaitSnapshotAfter(3, 100, TimeUnit.MILLISECONDS));
+        assertEquals(HostedGame.State.PAUSED, game.getState());
+        assertThrows(IllegalStateException.class, game::pause, "only running games pause");
+
+        game.resume();
+        assertThrows(IllegalStateException.class, () -> game.step(1));
+        assertNotNull(game.awaitSnapshotAfter(3, 10, TimeUnit.SECONDS));
+        game.cancel();
+        assertTrue(game.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(HostedGame.State.CANCELLED, game.getState());
+    }
+
+    @Test
+    public void gamesFinishAtTheirTurnLimit() throws InterruptedException {
+        HostedGame game = server.host(Universalis.setupDefaultGame(20, 4, 5L), 0, 7, false);
+        assertTrue(game.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(HostedGame.State.FINISHED, game.getState());
+        assertEquals(7, game.getSnapshot().getTurn());
+    }
+
+    @Test
+    public void concurrentRequestsNeverHostMoreThanMaxGames() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                () -> server.host(Universalis.setupDefaultGame(10, 2, 1L), 0, 0, true), "invalid games take no slot");
+        List<Callable<HostedGame>> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            long seed = i;
+            requests.add(() -> server.host(Universalis.setupDefaultGame(10, 2, seed), 0, 1000, true));
+        }
+        int hosted = 0;
+        HostedGame any = null;
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (Future<HostedGame> result : pool.invokeAll(requests)) {
+                try {
+                    any = result.get();
+                    hosted++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+        }
+        assertEquals(10, hosted);
+        assertThrows(IllegalStateException.class,
+                () -> server.host(Universalis.setupDefaultGame(10, 2, 1L), 0, 1000, true));
+
+        assertEquals(200, send("DELETE", "/games/" + any.getId()).statusCode());
+        assertNotNull(server.host(Universalis.setupDefaultGame(10, 2, 1L), 0, 1000, true));
+    }
+
+    @Test
+    public void httpApiControlsGames() throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "/games?size=20&nations=4&seed=7&paused=true");
+        assertEquals(201, created.statusCode());
+        int id = number(created.body(), "id");
+        assertEquals("/games/" + id, created.headers().firstValue("Location").orElseThrow());
+        assertTrue(created.body().contains("\"state\":\"PAUSED\""));
+
+        assertEquals(202, send("POST", "/games/" + id + "/step?turns=2").statusCode());
+        assertNotNull(server.getGame(id).awaitSnapshotAfter(1, 10, TimeUnit.SECONDS));
+        HttpResponse<String> status = send("GET", "/games/" + id);
+        assertEquals(200, status.statusCode());
+        assertEquals(2, number(status.body(), "turn"));
+        assertTrue(send("GET", "/games").body().contains("\"id\":" + id));
+
+        assertEquals(400, send("POST", "/games/" + id + "/step?turns=many").statusCode());
+        assertEquals(400, send("POST", "/games?mode=SIDEWAYS").statusCode());
+        assertEquals(404, send("GET", "/games/99").statusCode());
+        assertEquals(404, send("POST", "/games/" + id + "/teleport").statusCode());
+        assertEquals(405, send("PUT", "/games/" + id + "/pause").statusCode());
+        assertEquals(200, send("POST", "/games/" + id + "/resume").statusCode());
+        assertEquals(409, send("POST", "/games/" + id + "/step").statusCode());
+
+        assertEquals(200, send("DELETE", "/games/" + id).statusCode());
+        assertEquals(404, send("GET", "/games/" + id).statusCode());
+    }
+
+    @Test
+    public void eventStreamRebuildsTheMap() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            HostedGame game = server.host(Universalis.setupDefaultGame(20, 4, 11L), 0, 1000, true);
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://127.0.0.1:" + server.getPort() + "/games/" + game.getId() + "/events")).build();
+            HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+            assertEquals(200, response.statusCode());
+            assertEquals("text/event-stream; charset=utf-8", response.headers().firstValue("Content-Type").orElseThrow());
+            Iterator<String> lines = response.body().iterator();
+
+            assertEquals("event: keyframe", lines.next());
+            String keyframe = lines.next().substring("data: ".length());
+            int[] owners = new int[number(keyframe, "width") * number(keyframe, "height")];
+            int[] runs = numbers(keyframe, "owners");
+            for (int i = 0, cell = 0; i < runs.length; i += 2)
+                for (int n = 0; n < runs[i]; n++)
+                    owners[cell++] = runs[i + 1];
+            int[] development = numbers(keyframe, "development");
+            assertEquals(owners.length, development.length);
+
+            game.step(5);
+            int turn = 0;
+            while (turn < 5) {
+                String line = lines.next();
+                if (!line.startsWith("data: ")) continue;
+                String delta = line.substring("data: ".length());
+                int[] cells = numbers(delta, "cells");
+                for (int i = 0; i < cells.length; i += 3) {
+                    owners[cells[i]] = cells[i + 1];
+                    development[cells[i]] = cells[i + 2];
+                }
+                turn = number(delta, "turn");
+            }
+
+            GameSnapshot snapshot = game.getSnapshot();
+            assertEquals(5, snapshot.getTurn());
+            for (int cell = 0; cell < owners.length; cell++) {
+                assertEquals(snapshot.getOwnerId(cell), owners[cell], "owner of cell " + cell);
+                assertEquals(snapshot.getDevelopment(cell), development[cell], "development of cell " + cell);
+            }
+
+            game.cancel();
+            String last = "";
+            while (lines.hasNext() && !last.equals("event: end"))
+                last = lines.next();
+            assertEquals("event: end", last);
+            assertTrue(lines.next().contains("\"state\":\"CANCELLED\""));
+        });
+    }
+}
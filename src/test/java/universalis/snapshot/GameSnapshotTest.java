@@ -0,0 +1,108 @@
+package universalis.snapshot;
+
+import org.junit.jupiter.api.Test;
+import universalis.Universalis;
+import universalis.events.GameEventBus;
+import universalis.map.Map;
+import universalis.map.Nation;
+import universalis.report.QuietReporter;
+import universalis.strategy.NoOpStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameSnapshotTest {
+
+    @Test
+    public void snapshotsMatchTheLiveGameAndNeverChangeAfterwards() {
+        Universalis game = Universalis.setupDefaultGame(70, 8, 5L);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        game.setSnapshotPublishing(true);
+
+        GameSnapshot first = game.getSnapshot();
+        assertEquals(0, first.getTurn());
+        assertMatchesGame(game, first);
+        long[] firstState = encode(first);
+
+        for (int turn = 1; turn <= 40 && game.getNations().size() > 1; turn++) {
+            game.runTurns(1);
+            GameSnapshot snapshot = game.getSnapshot();
+            assertEquals(turn, snapshot.getTurn());
+            assertMatchesGame(game, snapshot);
+        }
+        assertArrayEquals(firstState, encode(first));
+    }
+
+    @Test
+    public void changedSinceListsExactlyTheDifferingCells() {
+        Universalis game = Universalis.setupDefaultGame(70, 8, 11L);
+        game.setReporter(new QuietReporter());
+        game.setEventBus(new GameEventBus());
+        game.setSnapshotPublishing(true);
+
+        GameSnapshot before = game.getSnapshot();
+        game.runTurns(5);
+        GameSnapshot after = game.getSnapshot();
+
+        List<Long> expected = new ArrayList<>();
+        for (long cell = 0; cell < (long) after.getWidth() * after.getHeight(); cell++)
+            if (before.getOwnerId(cell) != after.getOwnerId(cell) || before.getDevelopment(cell) != after.getDevelopment(cell))
+                expected.add(cell);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), after.changedSince(before));
+        assertEquals(0, after.changedSince(after).length);
+    }
+
+    @Test
+    public void untouchedChunksAreSharedBetweenSnapshots() {
+        List<Nation> nations = new ArrayList<>();
+        nations.add(new Nation("A", new NoOpStrategy()));
+        Map map = new Map.Builder(new Random(3)).create(70).seedNations(nations).build();
+        SnapshotPublisher publisher = new SnapshotPublisher(map, nations, 0);
+        GameSnapshot initial = publisher.getLatest();
+        assertEquals(2, initial.owners.length);
+
+        GameSnapshot unchanged = publisher.publish(1, nations, new long[0]);
+        assertSame(initial.owners[0], unchanged.owners[0]);
+        assertSame(initial.owners[1], unchanged.owners[1]);
+
+        long cell = map.getOwner(map.cellOf(69, 69)) == null ? map.cellOf(69, 69) : map.cellOf(68, 69);
+        map.getProvince(cell).setOwner(nations.getFirst());
+        GameSnapshot changed = publisher.publish(2, nations, new long[] { cell });
+        assertSame(unchanged.owners[0], changed.owners[0]);
+        assertNotSame(unchanged.owners[1], changed.owners[1]);
+        assertEquals("A", changed.getOwner(cell).getName());
+        assertNull(unchanged.getOwner(cell));
+    }
+
+    private static void assertMatchesGame(Universalis game, GameSnapshot snapshot) {
+        Map map = game.getMap();
+        assertEquals(map.getWidth(), snapshot.getWidth());
+        assertEquals(map.getHeight(), snapshot.getHeight());
+        for (long cell = 0; cell < (long) map.getWidth() * map.getHeight(); cell++) {
+            Nation owner = map.getOwner(cell);
+            NationSummary summary = snapshot.getOwner(cell);
+            assertEquals(owner == null ? null : owner.getName(), summary == null ? null : summary.getName());
+            assertEquals(map.getDevelopment(cell), snapshot.getDevelopment(cell));
+        }
+        assertEquals(game.getNations().size(), snapshot.getNations().size());
+        for (int i = 0; i < game.getNations().size(); i++) {
+            Nation nation = game.getNations().get(i);
+            NationSummary summary = snapshot.getNations().get(i);
+            assertEquals(nation.getName(), summary.getName());
+            assertEquals(nation.getProvinceCount(), summary.getProvinceCount());
+            assertEquals(nation.getTotalDevelopment(), summary.getTotalDevelopment());
+            assertEquals(nation.getArmy(), summary.getArmy());
+        }
+    }
+
+    private static long[] encode(GameSnapshot snapshot) {
+        long[] state = new long[snapshot.getWidth() * snapshot.getHeight()];
+        for (int cell = 0; cell < state.length; cell++)
+            state[cell] = ((long) snapshot.getOwnerId(cell) << 8) | snapshot.getDevelopment(cell);
+        return state;
+    }
+}
@@ -26,6 +26,26 @@ public class StrategyTest {
         s.execute(n, null); // safe with empty provinces
     }
 
+    @Test
+    public void defensiveDevelopsAQuarterOfProvinces() {
+        Map map = new Map.Builder(new java.util.Random(6)).storage(Map.Storage.PRIMITIVE).create(200).build();
+        Nation n = new Nation("Def", new DefensiveStrategy());
+        n.setRandom(new universalis.random.SplitMixRandom(6));
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                Province p = map.getProvince(x, y);
+                p.setOwner(n);
+                n.addProvinceToNationOnSetup(p);
+            }
+        }
+        int before = n.getTotalDevelopment();
+        n.getStrategy().execute(n, null);
+        // 40000 provinces at 25%: mean 10000, standard deviation about 87
+        int developed = n.getTotalDevelopment() - before;
+        assertTrue(Math.abs(developed - 10_000) < 500, "developed " + developed);
+        n.verifyAggregates(map);
+    }
+
     @Test
     public void offensiveExpandsWhenPossible() {
         Map.Builder builder = new Map.Builder(new java.util.Random(2));
@@ -45,5 +65,112 @@ public class StrategyTest {
 
         assertTrue(attacker.getProvinceCount() >= 1);
     }
-}
 
+    @Test
+    public void influenceMapMeasuresFromTheNearestBorder() {
+        Map map = new Map.Builder(new java.util.Random(8)).createNonSquare(5, 1).build();
+        int[] development = { 1, 2, 3, 4, 5 };
+        for (int x = 0; x < 5; x++)
+            map.setProvince(x, 0, new Province(development[x]));
+        Nation west = own(map, "West", 0);
+        Nation east = own(map, "East", 4);
+        west.setArmy(6);
+        east.setArmy(9);
+
+        InfluenceMap influence = new InfluenceMap();
+        influence.update(map, List.of(west, east), 0);
+
+        assertArrayEquals(new int[] { 0, 1, 2, 1, 0 }, field(influence::distance));
+        assertArrayEquals(new int[] { 6, 3, 2, 4, 9 }, field(influence::pressure));
+        assertArrayEquals(new int[] { 3, 6, 9, 12, 9 }, field(influence::value));
+        assertSame(west, influence.nearestNation(1));
+        assertSame(east, influence.nearestNation(3));
+    }
+
+    @Test
+    public void influenceStrategyExpandsIntoTheMostValuableTile() {
+        Map map = new Map.Builder(new java.util.Random(9)).create(3).build();
+        for (int y = 0; y < 3; y++)
+            for (int x = 0; x < 3; x++)
+                map.setProvince(x, y, new Province(0));
+        map.setProvince(2, 0, new Province(5));
+        map.setProvince(2, 2, new Province(1));
+        Nation nation = own(map, "Planner", map.cellOf(1, 1));
+        nation.setStrategy(new InfluenceStrategy());
+        Universalis game = new Universalis(map, new ArrayList<>(List.of(nation)));
+
+        nation.takeTurn(game);
+
+        // (2,1) sits between both developed tiles, so it is worth more than (1,0) next to only one
+        assertSame(nation, map.getOwner(map.cellOf(2, 1)));
+        assertEquals(2, nation.getProvinceCount());
+        assertInstanceOf(InfluenceStrategy.class, nation.getStrategy());
+    }
+
+    @Test
+    public void influenceGamesKeepConsistentAggregates() {
+        Universalis game = Universalis.setupDefaultGame(30, 8, 42L);
+        for (Nation nation : game.getNations())
+            nation.setStrategy(new InfluenceStrategy());
+        game.setConsistencyChecks(true);
+        game.runTurns(60);
+        assertEquals(game.getCompletedTurns(), game.getInfluenceMap().getTurn());
+    }
+
+    @Test
+    public void mctsSearchIsRepeatableWithAnIterationLimit() {
+        Universalis first = mctsGame();
+        Universalis second = mctsGame();
+        // the planner reads other nations' frontiers, so parallel turns must run it alone
+        second.setTurnMode(Universalis.TurnMode.PARALLEL);
+        for (int turn = 0; turn < 15; turn++) {
+            first.runTurns(1);
+            second.runTurns(1);
+            for (long cell = 0; cell < 20 * 20; cell++) {
+                Nation a = first.getMap().getOwner(cell);
+                Nation b = second.getMap().getOwner(cell);
+                assertEquals(a == null ? null : a.getName(), b == null ? null : b.getName());
+            }
+        }
+        first.verifyAggregates();
+    }
+
+    @Test
+    public void mctsTakesAFreeTileOverHolding() {
+        Map map = new Map.Builder(new java.util.Random(10)).createNonSquare(3, 1).build();
+        for (int x = 0; x < 3; x++)
+            map.setProvince(x, 0, new Province(2));
+        Nation planner = own(map, "Planner", 0);
+        Nation rival = own(map, "Rival", 2);
+        planner.setArmy(5);
+        rival.setArmy(5);
+        Universalis game = new Universalis(map, new ArrayList<>(List.of(planner, rival)), new java.util.Random(10));
+
+        Order order = new MctsStrategy(java.time.Duration.ofSeconds(10), 200, 2, 2).choose(planner, game);
+
+        assertNotNull(order);
+        assertEquals(Order.Type.EXPAND, order.getType());
+        assertEquals(1, order.getCell());
+    }
+
+    private static Universalis mctsGame() {
+        Universalis game = Universalis.setupDefaultGame(20, 4, 7L);
+        game.getNations().getFirst().setStrategy(new MctsStrategy(java.time.Duration.ofSeconds(10), 64, 3, 4));
+        return game;
+    }
+
+    private static Nation own(Map map, String name, long cell) {
+        Nation nation = new Nation(name, new NoOpStrategy());
+        Province province = map.getProvince(cell);
+        province.setOwner(nation);
+        nation.addProvinceToNationOnSetup(province);
+        return nation;
+    }
+
+    private static int[] field(java.util.function.LongToIntFunction values) {
+        int[] row = new int[5];
+        for (int cell = 0; cell < row.length; cell++)
+            row[cell] = values.applyAsInt(cell);
+        return row;
+    }
+}